@@ -0,0 +1,15 @@
+package com.mini.rpc.consumer;
+
+/**
+ * 同一提供者地址上多条连接的选择策略
+ */
+public enum ChannelSelectStrategy {
+    /**
+     * 轮询
+     */
+    ROUND_ROBIN,
+    /**
+     * 选择未完成调用最少的连接
+     */
+    LEAST_PENDING
+}
@@ -0,0 +1,55 @@
+package com.mini.rpc.consumer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 以异步方式调用同步接口：
+ * <pre>
+ * CompletableFuture&lt;String&gt; future = RpcAsync.call(() -&gt; helloFacade.hello("mini"));
+ * </pre>
+ * invocation 中的第一次 RPC 调用立即返回（引用类型返回 null，基本类型返回 0 / false），
+ * 其结果通过返回的 CompletableFuture 获取；响应在消费者共享的回调线程（rpc.consumerCallbackThreads）上解码并完成 future，
+ * 非 *Async 的后续回调也在这些线程上执行，不能阻塞，阻塞或耗时的后续处理请使用 *Async 方法并指定自己的线程池。
+ */
+public final class RpcAsync {
+
+    private static final ThreadLocal<Boolean> ASYNC = new ThreadLocal<>();
+
+    private static final ThreadLocal<CompletableFuture<?>> FUTURE = new ThreadLocal<>();
+
+    private RpcAsync() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> call(Supplier<T> invocation) {
+        ASYNC.set(Boolean.TRUE);
+        FUTURE.remove();
+        try {
+            invocation.get();
+        } finally {
+            ASYNC.remove();
+        }
+        CompletableFuture<?> future = FUTURE.get();
+        FUTURE.remove();
+        if (future == null) {
+            throw new IllegalStateException("no rpc invoked in async call");
+        }
+        return (CompletableFuture<T>) future;
+    }
+
+    /**
+     * 当前线程是否处于 {@link #call(Supplier)} 中，取出后即清除，只对第一次 RPC 调用生效
+     */
+    static boolean takeAsync() {
+        if (ASYNC.get() == null) {
+            return false;
+        }
+        ASYNC.remove();
+        return true;
+    }
+
+    static void setFuture(CompletableFuture<?> future) {
+        FUTURE.set(future);
+    }
+}
@@ -2,99 +2,392 @@ package com.mini.rpc.consumer;
 
 import com.mini.rpc.codec.MiniRpcDecoder;
 import com.mini.rpc.codec.MiniRpcEncoder;
+import com.mini.rpc.common.MiniRpcFuture;
 import com.mini.rpc.common.MiniRpcRequest;
-import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.common.MiniRpcResponse;
+import com.mini.rpc.common.RpcProperties;
 import com.mini.rpc.common.ServiceMeta;
 import com.mini.rpc.consumer.handler.HeartbeatHandler;
+import com.mini.rpc.handler.MiniRpcRequestHolder;
 import com.mini.rpc.handler.RpcResponseHandler;
+import com.mini.rpc.handler.RpcWriteQueue;
+import com.mini.rpc.protocol.LoadReport;
 import com.mini.rpc.protocol.MiniRpcProtocol;
-import com.mini.rpc.provider.registry.RegistryService;
+import com.mini.rpc.protocol.MsgStatus;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.timeout.IdleStateHandler;
-import lombok.SneakyThrows;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * 单个提供者地址上的连接池，连接按需建立，多个调用复用同一批连接
+ */
 @Slf4j
 public class RpcConsumer {
 
     private static final Integer RETRY_TIME = 5;//重试间隔，单位秒
     private static final int MAX_RECONNECT_TIMES = 3; // 最大重连次数
-    private int reconnectTimes = 0; // 当前重连次数
+    private static final int CONNECT_TIMEOUT_MILLIS = 3000;
+    /**
+     * 连接上已协商的方法 ID，随连接创建，重连后的新连接需要重新协商
+     */
+    private static final AttributeKey<Map<RpcMethodDescriptor, Integer>> METHOD_IDS = AttributeKey.valueOf("rpc.methodIds");
+    /**
+     * 连接上尚未结束的调用数，用于按最少等待选择连接
+     */
+    private static final AttributeKey<AtomicInteger> PENDING = AttributeKey.valueOf("rpc.pending");
+    /**
+     * 耗时指数平均的衰减时间常数，距上次采样越久，旧值的权重越低
+     */
+    private static final double LATENCY_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /**
+     * 超时、断线、过载等提供者侧失败按不低于该值的耗时计入，使负载均衡尽快避开该提供者
+     */
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * 负载报告得分的衰减时间常数，流量减少、收不到新报告时得分逐渐回落，提供者重新分得流量
+     */
+    private static final double LOAD_REPORT_DECAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicInteger reconnectTimes = new AtomicInteger(); // 当前连续重连失败次数
     private final Bootstrap bootstrap;
-    private final EventLoopGroup eventLoopGroup;
+    private final MiniRpcEncoder encoder;
+    private final ChannelSelectStrategy selectStrategy;
+    private final AtomicInteger nextChannel = new AtomicInteger();
+    private final int writeMaxBatch;
+    private final long writeMaxDelayMicros;
+    private final int maxPendingPerConnection;
 
-    private ChannelFuture future = null;
+    /**
+     * 每个槽位保存一条连接的建立结果，槽位为空或连接已断开时以 CAS 替换，无需加锁
+     */
+    private final AtomicReferenceArray<ChannelFuture> channels;
 
-    public String host;
+    private volatile boolean closed;
 
-    public Integer port;
+    /**
+     * 该地址上所有连接尚未结束的调用数
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    private volatile int weight;
 
+    /**
+     * 调用耗时的峰值敏感指数平均（纳秒），耗时升高时立即跟随，回落时按时间衰减
+     */
+    private volatile double latencyEwma;
 
+    private volatile long latencyStamp = System.nanoTime();
 
-    public RpcConsumer(ServiceMeta serviceMeta) {
+    /**
+     * 提供者报告的排队压力（排队请求数 / 执行中请求数）的指数平均
+     */
+    private volatile double pressure;
+
+    /**
+     * 提供者报告的近期 p99 服务耗时（纳秒）的指数平均
+     */
+    private volatile double reportedP99;
+
+    private volatile long reportStamp = System.nanoTime();
+
+    public String host;
+
+    public Integer port;
+
+    public RpcConsumer(ServiceMeta serviceMeta, RpcProperties rpcProperties, EventLoopGroup eventLoopGroup) {
+        host = serviceMeta.getServiceAddr();
+        port = serviceMeta.getServicePort();
+        weight = serviceMeta.getWeight();
+        encoder = new MiniRpcEncoder(rpcProperties.getCompressThreshold());
+        selectStrategy = ChannelSelectStrategy.valueOf(rpcProperties.getChannelSelectStrategy());
+        writeMaxBatch = rpcProperties.getWriteMaxBatch();
+        writeMaxDelayMicros = rpcProperties.getWriteMaxDelayMicros();
+        maxPendingPerConnection = rpcProperties.getMaxPendingPerConnection();
+        channels = new AtomicReferenceArray<>(Math.max(1, rpcProperties.getConnectionsPerEndpoint()));
         bootstrap = new Bootstrap();
-        eventLoopGroup = new NioEventLoopGroup(4);
         bootstrap.group(eventLoopGroup).channel(NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MILLIS)
+                .remoteAddress(new InetSocketAddress(host, port))
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel socketChannel) throws Exception {
+                        //心跳检测
                         socketChannel.pipeline()
-                                .addLast(new MiniRpcEncoder())
-                                .addLast(new MiniRpcDecoder())
+                                .addLast(new IdleStateHandler(0, 10, 0, TimeUnit.SECONDS))
+                                .addLast(new HeartbeatHandler(RpcConsumer.this))
+                                .addLast(encoder)
+                                .addLast(new MiniRpcDecoder(rpcProperties.isLazyDecode(), rpcProperties.getMaxBodySize()))
                                 .addLast(new RpcResponseHandler());
                     }
                 });
-        host = serviceMeta.getServiceAddr();
-        port = serviceMeta.getServicePort();
-        connect();
     }
 
-    @SneakyThrows
-    public void connect() {
-        log.info("netty client start。。");
-        //启动客户端去连接服务器端
-        future = bootstrap.connect(host, port);
-        future.addListener((ChannelFutureListener) arg0 -> {
-            if (future.isSuccess()) {
-                reconnectTimes = 0;
-                //心跳检测
-                //future.channel().pipeline().addFirst(new IdleStateHandler(0, 10, 0, TimeUnit.SECONDS));
-                log.info("connect rpc server {} on port {} success.names:{}", host, port,future.channel().pipeline().names());
+    /**
+     * 发送请求并返回所用连接，调用完成（响应、超时、断线）时自动更新未完成调用数和耗时统计
+     */
+    public Channel sendRequest(MiniRpcProtocol<MiniRpcRequest> protocol, RpcMethodDescriptor descriptor, MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> rpcFuture) throws Exception {
+        Channel channel = selectChannel();
+        AtomicInteger pending = channel.attr(PENDING).get();
+        pending.incrementAndGet();
+        active.incrementAndGet();
+        long startNanos = System.nanoTime();
+        MiniRpcRequestHolder requestHolder = MiniRpcRequestHolder.get(channel);
+        long requestId;
+        try {
+            requestId = requestHolder.register(rpcFuture);
+        } catch (Exception e) {
+            pending.decrementAndGet();
+            active.decrementAndGet();
+            throw e;
+        }
+        rpcFuture.onComplete((msg, cause) -> complete(pending, startNanos, msg, cause));
+        protocol.getHeader().setRequestId(requestId);
+        try {
+            Map<RpcMethodDescriptor, Integer> methodIds = channel.attr(METHOD_IDS).get();
+            Integer methodId = methodIds.get(descriptor);
+            if (methodId != null) {
+                protocol.getBody().setMethodId(methodId);
             } else {
-                reconnectTimes++;
-                final EventLoop loop = future.channel().eventLoop();
-                loop.schedule(() -> {
-                    log.error("connect rpc server {} on port {} failed. 开始重试 当前次数:{}", host, port, reconnectTimes);
-                    if (reconnectTimes == MAX_RECONNECT_TIMES){
-                        log.info("停止重试，删除当前消费者");
-                        // 关闭Channel
-                        future.channel().close().addListener((ChannelFutureListener) channelFuture -> {
-                            // Channel关闭完成后，关闭EventLoopGroup
-                            RpcConsumerFactory.remove(this);
-                            eventLoopGroup.shutdownGracefully();
-                        });
+                // 首次在该连接上调用，发送完整方法信息，由响应带回分配的方法 ID，调用方解码响应后通过 negotiated 记录
+                descriptor.fill(protocol.getBody());
+            }
+            // 在调用方线程上完成序列化和压缩
+            RpcWriteQueue.get(channel).enqueue(encoder.encode(channel.alloc(), protocol));
+            return channel;
+        } catch (Exception e) {
+            requestHolder.fail(requestId, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 记录提供者在响应中分配的方法 ID，由解码响应的调用方线程调用，不在 I/O 线程上解码响应体
+     */
+    public void negotiated(Channel channel, RpcMethodDescriptor descriptor, int methodId) {
+        if (methodId > 0) {
+            channel.attr(METHOD_IDS).get().putIfAbsent(descriptor, methodId);
+        }
+    }
+
+    private void complete(AtomicInteger pending, long startNanos, MiniRpcProtocol<MiniRpcResponse> msg, Throwable cause) {
+        pending.decrementAndGet();
+        active.decrementAndGet();
+        long elapsed = System.nanoTime() - startNanos;
+        if (cause instanceof CancellationException) {
+            // 调用方主动取消，与提供者快慢无关
+            return;
+        }
+        if (msg != null && LoadReport.isPresent(msg.getHeader().getTimeout())) {
+            recordLoadReport(msg.getHeader().getTimeout());
+        }
+        byte status = msg == null ? 0 : msg.getHeader().getStatus();
+        if (cause != null || status == (byte) MsgStatus.OVERLOADED.getCode() || status == (byte) MsgStatus.DEADLINE_EXCEEDED.getCode()) {
+            elapsed = Math.max(elapsed, FAILURE_PENALTY_NANOS);
+        }
+        recordLatency(elapsed);
+    }
+
+    private synchronized void recordLatency(long elapsedNanos) {
+        long now = System.nanoTime();
+        double ewma = latencyEwma;
+        if (elapsedNanos > ewma) {
+            latencyEwma = elapsedNanos;
+        } else {
+            double w = Math.exp(-(now - latencyStamp) / LATENCY_DECAY_NANOS);
+            latencyEwma = ewma * w + elapsedNanos * (1 - w);
+        }
+        latencyStamp = now;
+    }
+
+    private synchronized void recordLoadReport(int report) {
+        long now = System.nanoTime();
+        double w = Math.exp(-(now - reportStamp) / LOAD_REPORT_DECAY_NANOS);
+        double sample = (double) LoadReport.queueSize(report) / Math.max(1, LoadReport.active(report));
+        pressure = pressure * w + sample * (1 - w);
+        reportedP99 = reportedP99 * w + TimeUnit.MILLISECONDS.toNanos(LoadReport.p99Millis(report)) * (1 - w);
+        reportStamp = now;
+    }
+
+    /**
+     * 尚未结束的调用数
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * 按提供者报告的排队压力折算后的权重：weight / (1 + 压力)，不低于 1；配置权重不大于 0 时原样返回
+     */
+    public int getEffectiveWeight() {
+        int weight = this.weight;
+        if (weight <= 0) {
+            return weight;
+        }
+        return Math.max(1, (int) (weight / (1 + getPressure())));
+    }
+
+    /**
+     * 衰减到当前时刻的排队压力，0 表示提供者没有排队或长时间没有收到报告
+     */
+    public double getPressure() {
+        return pressure * Math.exp(-(System.nanoTime() - reportStamp) / LOAD_REPORT_DECAY_NANOS);
+    }
+
+    /**
+     * 负载估计：衰减到当前时刻的耗时指数平均（不低于提供者报告的 p99）乘以（未完成调用数 + 1）和（1 + 排队压力）
+     */
+    public double getLoad() {
+        long now = System.nanoTime();
+        double ewma = latencyEwma * Math.exp(-(now - latencyStamp) / LATENCY_DECAY_NANOS);
+        double decay = Math.exp(-(now - reportStamp) / LOAD_REPORT_DECAY_NANOS);
+        return Math.max(ewma, reportedP99 * decay) * (active.get() + 1) * (1 + pressure * decay);
+    }
+
+    private Channel selectChannel() throws Exception {
+        int size = channels.length();
+        int index = 0;
+        if (size > 1) {
+            if (selectStrategy == ChannelSelectStrategy.LEAST_PENDING) {
+                int leastPending = Integer.MAX_VALUE;
+                for (int i = 0; i < size; i++) {
+                    ChannelFuture future = channels.get(i);
+                    // 尚未建立的连接优先使用，让连接数尽快达到配置值
+                    int pending = future == null ? -1 : future.channel().attr(PENDING).get().get();
+                    if (pending < leastPending) {
+                        leastPending = pending;
+                        index = i;
                     }
-                    connect();
-                    //此处处理重连次数
-                }, RETRY_TIME, TimeUnit.SECONDS);
-                future.cause().printStackTrace();
+                }
+            } else {
+                index = (nextChannel.getAndIncrement() & Integer.MAX_VALUE) % size;
+            }
+        }
+        return acquire(index);
+    }
+
+    private Channel acquire(int index) throws Exception {
+        ChannelFuture future = channels.get(index);
+        if (future == null || future.isDone() && !future.channel().isActive()) {
+            future = connect(index, future);
+        }
+        if (!future.isDone() && inEventLoop()) {
+            // 在 I/O 线程上等待连接会占住该线程，连接本身可能正需要它完成，直接失败，连接继续在后台建立
+            throw new IllegalStateException(String.format("connect rpc server %s on port %d in progress, cannot wait on event loop thread", host, port));
+        }
+        if (!future.await(CONNECT_TIMEOUT_MILLIS)) {
+            throw new IllegalStateException(String.format("connect rpc server %s on port %d timeout", host, port));
+        }
+        if (!future.isSuccess()) {
+            throw new IllegalStateException(String.format("connect rpc server %s on port %d failed", host, port), future.cause());
+        }
+        return future.channel();
+    }
+
+    private boolean inEventLoop() {
+        for (EventExecutor executor : bootstrap.config().group()) {
+            if (executor.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 以 CAS 占据槽位后再发起连接，竞争失败的一方关闭自己尚未连接的 Channel 并使用胜出者的连接
+     */
+    private ChannelFuture connect(int index, ChannelFuture expect) {
+        if (closed) {
+            throw new IllegalStateException(String.format("rpc consumer %s:%d closed", host, port));
+        }
+        ChannelFuture registerFuture = bootstrap.register();
+        Channel channel = registerFuture.channel();
+        // 占据槽位前初始化连接状态，其他线程一旦看到该连接即可直接使用
+        channel.attr(METHOD_IDS).set(new ConcurrentHashMap<>());
+        channel.attr(PENDING).set(new AtomicInteger());
+        MiniRpcRequestHolder.install(channel, maxPendingPerConnection);
+        RpcWriteQueue.install(channel, writeMaxBatch, writeMaxDelayMicros);
+        ChannelPromise connectPromise = channel.newPromise();
+        if (!channels.compareAndSet(index, expect, connectPromise)) {
+            channel.close();
+            return channels.get(index);
+        }
+        log.info("netty client start。。");
+        registerFuture.addListener((ChannelFutureListener) registered -> {
+            if (registered.isSuccess()) {
+                channel.connect(bootstrap.config().remoteAddress(), connectPromise);
+            } else {
+                connectPromise.setFailure(registered.cause());
+            }
+        });
+        connectPromise.addListener((ChannelFutureListener) connected -> {
+            if (connected.isSuccess()) {
+                reconnectTimes.set(0);
+                log.info("connect rpc server {} on port {} success.names:{}", host, port, channel.pipeline().names());
+            } else {
+                log.error("connect rpc server {} on port {} failed.", host, port, connected.cause());
+                channel.close();
             }
         });
-        //添加心跳检测处理器
-        future.channel().pipeline()
-                .addFirst(new HeartbeatHandler(this))
-                .addFirst(new IdleStateHandler(0, 10, 0, TimeUnit.SECONDS));
-        //阻塞等待连接完成
-        future.sync();
+        return connectPromise;
     }
 
-    public void sendRequest(MiniRpcProtocol<MiniRpcRequest> protocol) throws Exception {
-        future.channel().writeAndFlush(protocol);
+    /**
+     * 使用过程中断线，重建该连接；连续失败达到上限后从工厂中移除
+     */
+    public void reconnect(Channel inactive) {
+        for (int i = 0; i < channels.length(); i++) {
+            ChannelFuture future = channels.get(i);
+            if (future == null || future.channel() != inactive || closed) {
+                continue;
+            }
+            int index = i;
+            connect(index, future).addListener((ChannelFutureListener) connected -> {
+                if (connected.isSuccess() || closed) {
+                    return;
+                }
+                if (reconnectTimes.incrementAndGet() >= MAX_RECONNECT_TIMES) {
+                    log.info("停止重试，删除当前消费者");
+                    RpcConsumerFactory.remove(this);
+                    close();
+                    return;
+                }
+                connected.channel().eventLoop().schedule(() -> {
+                    log.error("connect rpc server {} on port {} failed. 开始重试 当前次数:{}", host, port, reconnectTimes.get());
+                    reconnect(connected.channel());
+                }, RETRY_TIME, TimeUnit.SECONDS);
+            });
+            return;
+        }
+    }
+
+    public void close() {
+        closed = true;
+        for (int i = 0; i < channels.length(); i++) {
+            ChannelFuture future = channels.get(i);
+            if (future != null) {
+                future.channel().close();
+            }
+        }
     }
 }
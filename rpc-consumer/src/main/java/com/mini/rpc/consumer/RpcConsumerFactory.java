@@ -1,37 +1,135 @@
 package com.mini.rpc.consumer;
 
-import com.mini.rpc.common.MiniRpcRequest;
-import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.common.RpcException;
+import com.mini.rpc.common.RpcProperties;
 import com.mini.rpc.common.ServiceMeta;
-import com.mini.rpc.protocol.MiniRpcProtocol;
 import com.mini.rpc.provider.registry.RegistryService;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Slf4j
 public class RpcConsumerFactory {
     private static final ConcurrentHashMap<String, RpcConsumer> RPC_CONSUMER_MAP = new ConcurrentHashMap<>();
 
-    public static RpcConsumer getInstance(MiniRpcProtocol<MiniRpcRequest> protocol, RegistryService registryService) throws Exception {
-        MiniRpcRequest request = protocol.getBody();
-        Object[] params = request.getParams();
-        String serviceKey = RpcServiceHelper.buildServiceKey(request.getClassName(), request.getServiceVersion());
+    /**
+     * 每个服务的提供者对应的消费者列表，注册中心返回的实例未变化时复用同一个列表，负载均衡器据此复用自身状态
+     */
+    private static final ConcurrentHashMap<String, Endpoints> ENDPOINTS_MAP = new ConcurrentHashMap<>();
 
-        int invokerHashCode = params.length > 0 ? params[0].hashCode() : serviceKey.hashCode();
-        ServiceMeta serviceMetadata = registryService.discovery(serviceKey, invokerHashCode);
+    private static volatile RpcProperties rpcProperties = new RpcProperties();
+
+    /**
+     * 所有提供者地址共享的 I/O 线程，首次创建消费者时按配置初始化
+     */
+    private static volatile EventLoopGroup eventLoopGroup;
+
+    /**
+     * 异步调用解码响应并回调的线程，首次使用时按配置初始化
+     */
+    private static volatile ExecutorService callbackExecutor;
+
+    public static void configure(RpcProperties properties) {
+        rpcProperties = properties;
+    }
+
+    public static RpcProperties getRpcProperties() {
+        return rpcProperties;
+    }
+
+    /**
+     * 查询服务的全部提供者，由负载均衡器选出本次调用使用的消费者
+     */
+    public static RpcConsumer select(String serviceKey, int invokerHashCode, RegistryService registryService,
+                                     ServiceLoadBalancer<RpcConsumer> loadBalancer) throws Exception {
+        List<RpcConsumer> endpoints = getEndpoints(serviceKey, registryService.queryInstances(serviceKey));
+        RpcConsumer rpcConsumer = loadBalancer.select(endpoints, invokerHashCode);
+        if (rpcConsumer == null) {
+            throw new RpcException("no available provider for " + serviceKey);
+        }
+        return rpcConsumer;
+    }
+
+    private static List<RpcConsumer> getEndpoints(String serviceKey, List<ServiceMeta> instances) {
+        Endpoints endpoints = ENDPOINTS_MAP.get(serviceKey);
+        if (endpoints != null && (endpoints.instances == instances || endpoints.instances.equals(instances))) {
+            return endpoints.consumers;
+        }
+        List<RpcConsumer> consumers = new ArrayList<>(instances.size());
+        for (ServiceMeta serviceMeta : instances) {
+            RpcConsumer rpcConsumer = getInstance(serviceMeta);
+            rpcConsumer.setWeight(serviceMeta.getWeight());
+            consumers.add(rpcConsumer);
+        }
+        endpoints = new Endpoints(instances, Collections.unmodifiableList(consumers));
+        ENDPOINTS_MAP.put(serviceKey, endpoints);
+        return endpoints.consumers;
+    }
+
+    private static RpcConsumer getInstance(ServiceMeta serviceMetadata) {
         String key = serviceMetadata.getServiceAddr() + ":" + serviceMetadata.getServicePort();
-        if(RPC_CONSUMER_MAP.containsKey(key)){
-            return RPC_CONSUMER_MAP.get(key);
-        }else {
-            RpcConsumer rpcConsumer = new RpcConsumer(serviceMetadata);
-            RPC_CONSUMER_MAP.put(key,rpcConsumer);
+        RpcConsumer rpcConsumer = RPC_CONSUMER_MAP.get(key);
+        if (rpcConsumer != null) {
             return rpcConsumer;
         }
+        // 创建消费者不建立连接，连接在首次发送时按需建立，不会长时间占用 map 的锁
+        return RPC_CONSUMER_MAP.computeIfAbsent(key, k -> new RpcConsumer(serviceMetadata, rpcProperties, eventLoopGroup()));
     }
 
     public static void remove(RpcConsumer rpcConsumer){
         log.info("连接失败，删除rpcConsumer host:{},port:{}",rpcConsumer.host,rpcConsumer.port);
-        RPC_CONSUMER_MAP.remove(rpcConsumer.host + ":" + rpcConsumer.port);
+        RPC_CONSUMER_MAP.remove(rpcConsumer.host + ":" + rpcConsumer.port, rpcConsumer);
+        // 已缓存的提供者列表可能引用该消费者，下次调用时重建
+        ENDPOINTS_MAP.clear();
+    }
+
+    private static EventLoopGroup eventLoopGroup() {
+        if (eventLoopGroup == null) {
+            synchronized (RpcConsumerFactory.class) {
+                if (eventLoopGroup == null) {
+                    eventLoopGroup = new NioEventLoopGroup(rpcProperties.getConsumerIoThreads());
+                }
+            }
+        }
+        return eventLoopGroup;
+    }
+
+    /**
+     * 异步调用的响应在该线程池上解码并完成 CompletableFuture，不占用 I/O 线程；
+     * 所有异步调用共享这些线程，回调中阻塞会推迟其他调用的完成
+     */
+    static Executor callbackExecutor() {
+        if (callbackExecutor == null) {
+            synchronized (RpcConsumerFactory.class) {
+                if (callbackExecutor == null) {
+                    int threads = rpcProperties.getConsumerCallbackThreads();
+                    if (threads <= 0) {
+                        threads = Runtime.getRuntime().availableProcessors();
+                    }
+                    callbackExecutor = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("rpc-callback", true));
+                }
+            }
+        }
+        return callbackExecutor;
+    }
+
+    private static final class Endpoints {
+        private final List<ServiceMeta> instances;
+        private final List<RpcConsumer> consumers;
+
+        private Endpoints(List<ServiceMeta> instances, List<RpcConsumer> consumers) {
+            this.instances = instances;
+            this.consumers = consumers;
+        }
     }
 }
@@ -3,6 +3,7 @@ package com.mini.rpc.consumer;
 import com.mini.rpc.common.RpcConstants;
 import com.mini.rpc.common.RpcProperties;
 import com.mini.rpc.consumer.annotation.RpcReference;
+import com.mini.rpc.provider.registry.RegistryFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanClassLoaderAware;
@@ -13,6 +14,7 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.annotation.AnnotationUtils;
@@ -46,6 +48,11 @@ public class RpcConsumerPostProcessor implements ApplicationContextAware, BeanCl
 
     @Override
     public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        RpcProperties rpcProperties = Binder.get(context.getEnvironment())
+                .bind("rpc", RpcProperties.class).orElseGet(RpcProperties::new);
+        RpcConsumerFactory.configure(rpcProperties);
+        RegistryFactory.configure(rpcProperties);
+
         for (String beanDefinitionName : beanFactory.getBeanDefinitionNames()) {
             BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanDefinitionName);
             String beanClassName = beanDefinition.getBeanClassName();
@@ -75,6 +82,10 @@ public class RpcConsumerPostProcessor implements ApplicationContextAware, BeanCl
             builder.addPropertyValue("registryType", annotation.registryType());
             builder.addPropertyValue("registryAddr", annotation.registryAddress());
             builder.addPropertyValue("timeout", annotation.timeout());
+            builder.addPropertyValue("serialization", annotation.serialization());
+            builder.addPropertyValue("compression", annotation.compression());
+            builder.addPropertyValue("loadBalancer", annotation.loadBalancer());
+            builder.addPropertyValue("hashArgument", annotation.hashArgument());
 
             BeanDefinition beanDefinition = builder.getBeanDefinition();
             rpcRefBeanDefinitions.put(field.getName(), beanDefinition);
@@ -2,63 +2,182 @@ package com.mini.rpc.consumer;
 
 import com.mini.rpc.common.MiniRpcFuture;
 import com.mini.rpc.common.MiniRpcRequest;
-import com.mini.rpc.common.MiniRpcRequestHolder;
 import com.mini.rpc.common.MiniRpcResponse;
+import com.mini.rpc.common.RpcContext;
+import com.mini.rpc.common.RpcException;
+import com.mini.rpc.common.RpcOverloadedException;
+import com.mini.rpc.consumer.loadbalancer.LoadBalancerFactory;
+import com.mini.rpc.consumer.loadbalancer.LoadBalancerType;
+import com.mini.rpc.handler.MiniRpcRequestHolder;
 import com.mini.rpc.protocol.MiniRpcProtocol;
 import com.mini.rpc.protocol.MsgHeader;
+import com.mini.rpc.protocol.MsgStatus;
 import com.mini.rpc.protocol.MsgType;
 import com.mini.rpc.protocol.ProtocolConstants;
 import com.mini.rpc.provider.registry.RegistryService;
-import com.mini.rpc.serialization.SerializationTypeEnum;
-import io.netty.channel.ChannelFuture;
-import io.netty.channel.DefaultEventLoop;
-import io.netty.util.concurrent.DefaultPromise;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+import io.netty.channel.Channel;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class RpcInvokerProxy implements InvocationHandler {
 
     private final String serviceVersion;
     private final long timeout;
+    private final byte serialization;
+    private final byte compression;
     private final RegistryService registryService;
+    private final ServiceLoadBalancer<RpcConsumer> loadBalancer;
+    private final int hashArgument;
+    private final Map<Method, RpcMethodDescriptor> descriptors = new ConcurrentHashMap<>();
 
-    public RpcInvokerProxy(String serviceVersion, long timeout, RegistryService registryService) {
+    public RpcInvokerProxy(String serviceVersion, long timeout, byte serialization, byte compression, RegistryService registryService) {
+        this(serviceVersion, timeout, serialization, compression, registryService,
+                LoadBalancerFactory.create(LoadBalancerType.CONSISTENT_HASH, RpcConsumerFactory.getRpcProperties()), 0);
+    }
+
+    /**
+     * @param hashArgument 一致性哈希使用的参数下标，方法参数标注了 @RpcHashKey 时以标注为准，小于 0 时按服务哈希
+     */
+    public RpcInvokerProxy(String serviceVersion, long timeout, byte serialization, byte compression, RegistryService registryService,
+                           ServiceLoadBalancer<RpcConsumer> loadBalancer, int hashArgument) {
         this.serviceVersion = serviceVersion;
         this.timeout = timeout;
+        this.serialization = serialization;
+        this.compression = compression;
         this.registryService = registryService;
+        this.loadBalancer = loadBalancer;
+        this.hashArgument = hashArgument;
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         MiniRpcProtocol<MiniRpcRequest> protocol = new MiniRpcProtocol<>();
+        // 在提供者的业务方法中发起的下游调用，超时不超过上游剩余的时间
+        long callTimeout = timeout;
+        if (RpcContext.hasDeadline()) {
+            long remaining = RpcContext.getRemainingMillis();
+            if (remaining <= 0) {
+                throw new RpcException("rpc deadline exceeded before call " + method.getName());
+            }
+            callTimeout = Math.min(timeout, remaining);
+        }
         MsgHeader header = new MsgHeader();
-        long requestId = MiniRpcRequestHolder.REQUEST_ID_GEN.incrementAndGet();
         header.setMagic(ProtocolConstants.MAGIC);
         header.setVersion(ProtocolConstants.VERSION);
-        header.setRequestId(requestId);
-        header.setSerialization((byte) SerializationTypeEnum.HESSIAN.getType());
+        header.setSerialization(serialization);
+        header.setCompression(compression);
         header.setMsgType((byte) MsgType.REQUEST.getType());
         header.setStatus((byte) 0x1);
+        header.setTimeout((int) Math.min(callTimeout, Integer.MAX_VALUE));
         protocol.setHeader(header);
 
+        RpcMethodDescriptor descriptor = descriptors.computeIfAbsent(method, m -> new RpcMethodDescriptor(serviceVersion, m, hashArgument));
         MiniRpcRequest request = new MiniRpcRequest();
-        request.setServiceVersion(this.serviceVersion);
-        request.setClassName(method.getDeclaringClass().getName());
-        request.setMethodName(method.getName());
-        request.setParameterTypes(method.getParameterTypes());
         request.setParams(args);
         protocol.setBody(request);
 
-        RpcConsumer rpcConsumer = RpcConsumerFactory.getInstance(protocol, this.registryService);
-        MiniRpcFuture<MiniRpcResponse> future = new MiniRpcFuture<>(new DefaultPromise<>(new DefaultEventLoop()), timeout);
-        MiniRpcRequestHolder.REQUEST_MAP.put(requestId, future);
-        rpcConsumer.sendRequest(protocol);
+        // 无论方法本身是否异步都先取出 RpcAsync 标记，只对 RpcAsync.call 中的第一次调用生效
+        boolean wrapped = RpcAsync.takeAsync();
+        RpcConsumer rpcConsumer = RpcConsumerFactory.select(descriptor.getServiceKey(), descriptor.hashKey(args), this.registryService, loadBalancer);
+        boolean async = descriptor.isAsync() || wrapped;
+        // 异步调用在回调线程池上解码并完成，同步调用由调用方线程 park 等待
+        MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future = new MiniRpcFuture<>(callTimeout);
+        Channel channel = rpcConsumer.sendRequest(protocol, descriptor, future);
 
-        // TODO hold request by ThreadLocal
+        if (async) {
+            CompletableFuture<Object> result = invokeAsync(rpcConsumer, channel, descriptor, future, RpcConsumerFactory.callbackExecutor());
+            if (wrapped) {
+                RpcAsync.setFuture(result);
+            }
+            return descriptor.isAsync() ? result : defaultValue(descriptor.getReturnType());
+        }
+
+        MiniRpcProtocol<MiniRpcResponse> response;
+        try {
+            response = future.get(future.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 与响应处理器竞争完成 future，响应恰好在超时后到达时由调用方释放
+            MiniRpcRequestHolder.get(channel).expire(future);
+            if (future.isSuccess()) {
+                future.getNow().release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            // 时间轮超时或连接断开
+            throw e.getCause();
+        }
+        // 惰性解码时响应体在调用方线程反序列化
+        return getData(rpcConsumer, channel, descriptor, response);
+    }
 
+    /**
+     * 响应到达时由 I/O 线程把解码交给 callbackExecutor，在其上反序列化响应体并完成 CompletableFuture，
+     * 非 *Async 的后续回调也在这些线程上执行，不能阻塞；超时和断线由 MiniRpcRequestHolder 的时间轮和连接关闭事件触发失败
+     */
+    private CompletableFuture<Object> invokeAsync(RpcConsumer rpcConsumer, Channel channel, RpcMethodDescriptor descriptor,
+                                                  MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future, Executor callbackExecutor) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        // 调用方取消 CompletableFuture 时通知提供者
+        result.whenComplete((data, throwable) -> {
+            if (result.isCancelled()) {
+                MiniRpcRequestHolder.get(channel).cancel(future);
+            }
+        });
+        future.onComplete((protocol, cause) -> {
+            if (cause != null) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            // 不用 thenApplyAsync：调用方已取消时依赖阶段不再执行，响应体得不到释放
+            try {
+                callbackExecutor.execute(() -> {
+                    try {
+                        result.complete(getData(rpcConsumer, channel, descriptor, protocol));
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                protocol.release();
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 提供者返回失败或截止时间已过时抛出 RpcException，提供者过载时抛出 RpcOverloadedException；
+     * 首次调用的响应带回方法 ID，在这里记录到连接上
+     */
+    private static Object getData(RpcConsumer rpcConsumer, Channel channel, RpcMethodDescriptor descriptor,
+                                  MiniRpcProtocol<MiniRpcResponse> protocol) {
+        MiniRpcResponse response = protocol.decodeBody(MiniRpcResponse.class);
+        rpcConsumer.negotiated(channel, descriptor, response.getMethodId());
+        byte status = protocol.getHeader().getStatus();
+        if (status == (byte) MsgStatus.OVERLOADED.getCode()) {
+            throw new RpcOverloadedException(response.getMessage());
+        }
+        if (status != (byte) MsgStatus.SUCCESS.getCode()) {
+            throw new RpcException(response.getMessage());
+        }
+        return response.getData();
+    }
 
-        return future.getPromise().get(future.getTimeout(), TimeUnit.MILLISECONDS).getData();
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        return Array.get(Array.newInstance(type, 1), 0);
     }
 }
@@ -0,0 +1,83 @@
+package com.mini.rpc.consumer;
+
+import com.mini.rpc.annotation.RpcHashKey;
+import com.mini.rpc.common.MiniRpcRequest;
+import com.mini.rpc.common.RpcServiceHelper;
+import lombok.Getter;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 代理方法的调用描述，每个引用的每个方法只创建一次，同时作为连接内方法 ID 表的 key
+ */
+@Getter
+public class RpcMethodDescriptor {
+
+    private final String serviceKey;
+
+    private final String className;
+
+    private final String serviceVersion;
+
+    private final String methodName;
+
+    private final Class<?>[] parameterTypes;
+
+    private final Class<?> returnType;
+
+    /**
+     * 返回 CompletableFuture / CompletionStage / Future 的方法为异步方法，调用不阻塞
+     */
+    private final boolean async;
+
+    /**
+     * 一致性哈希使用的参数下标，小于 0 时按服务哈希
+     */
+    private final int hashArgument;
+
+    public RpcMethodDescriptor(String serviceVersion, Method method, int hashArgument) {
+        this.className = method.getDeclaringClass().getName();
+        this.serviceVersion = serviceVersion;
+        this.methodName = method.getName();
+        this.parameterTypes = method.getParameterTypes();
+        this.returnType = method.getReturnType();
+        this.async = returnType != Object.class && returnType.isAssignableFrom(CompletableFuture.class);
+        this.serviceKey = RpcServiceHelper.buildServiceKey(className, serviceVersion);
+        this.hashArgument = resolveHashArgument(method, hashArgument);
+    }
+
+    private static int resolveHashArgument(Method method, int hashArgument) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof RpcHashKey) {
+                    return i;
+                }
+            }
+        }
+        return hashArgument < parameterAnnotations.length ? hashArgument : -1;
+    }
+
+    /**
+     * 本次调用的一致性哈希键
+     */
+    public int hashKey(Object[] args) {
+        if (hashArgument < 0 || args == null) {
+            return serviceKey.hashCode();
+        }
+        return Objects.hashCode(args[hashArgument]);
+    }
+
+    /**
+     * 填充完整的方法信息，用于尚未协商出方法 ID 的连接
+     */
+    public void fill(MiniRpcRequest request) {
+        request.setClassName(className);
+        request.setServiceVersion(serviceVersion);
+        request.setMethodName(methodName);
+        request.setParameterTypes(parameterTypes);
+    }
+}
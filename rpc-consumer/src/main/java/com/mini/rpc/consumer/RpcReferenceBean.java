@@ -1,8 +1,13 @@
 package com.mini.rpc.consumer;
 
+import com.mini.rpc.compress.CompressionTypeEnum;
+import com.mini.rpc.consumer.loadbalancer.LoadBalancerFactory;
+import com.mini.rpc.consumer.loadbalancer.LoadBalancerType;
 import com.mini.rpc.provider.registry.RegistryFactory;
 import com.mini.rpc.provider.registry.RegistryService;
 import com.mini.rpc.provider.registry.RegistryType;
+import com.mini.rpc.serialization.KryoSerialization;
+import com.mini.rpc.serialization.SerializationTypeEnum;
 import org.springframework.beans.factory.FactoryBean;
 
 import java.lang.reflect.Proxy;
@@ -19,6 +24,14 @@ public class RpcReferenceBean implements FactoryBean<Object> {
 
     private long timeout;
 
+    private String serialization;
+
+    private String compression;
+
+    private String loadBalancer;
+
+    private int hashArgument;
+
     private Object object;
 
     @Override
@@ -33,10 +46,16 @@ public class RpcReferenceBean implements FactoryBean<Object> {
 
     public void init() throws Exception {
         RegistryService registryService = RegistryFactory.getInstance(this.registryAddr, RegistryType.valueOf(this.registryType));
+        SerializationTypeEnum serializationType = SerializationTypeEnum.valueOf(this.serialization);
+        CompressionTypeEnum compressionType = CompressionTypeEnum.valueOf(this.compression);
+        KryoSerialization.registerServiceInterface(interfaceClass);
         this.object = Proxy.newProxyInstance(
                 interfaceClass.getClassLoader(),
                 new Class<?>[]{interfaceClass},
-                new RpcInvokerProxy(serviceVersion, timeout, registryService));
+                new RpcInvokerProxy(serviceVersion, timeout, (byte) serializationType.getType(),
+                        (byte) compressionType.getType(), registryService,
+                        LoadBalancerFactory.create(LoadBalancerType.valueOf(this.loadBalancer), RpcConsumerFactory.getRpcProperties()),
+                        hashArgument));
     }
 
     public void setInterfaceClass(Class<?> interfaceClass) {
@@ -58,4 +77,20 @@ public class RpcReferenceBean implements FactoryBean<Object> {
     public void setTimeout(long timeout) {
         this.timeout = timeout;
     }
+
+    public void setSerialization(String serialization) {
+        this.serialization = serialization;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public void setLoadBalancer(String loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+
+    public void setHashArgument(int hashArgument) {
+        this.hashArgument = hashArgument;
+    }
 }
@@ -20,4 +20,24 @@ public @interface RpcReference {
 
     long timeout() default 5000;
 
+    /**
+     * 请求使用的序列化类型，见 SerializationTypeEnum
+     */
+    String serialization() default "HESSIAN";
+
+    /**
+     * 接受的压缩算法，见 CompressionTypeEnum；请求和响应的数据内容超过 rpc.compressThreshold 时压缩
+     */
+    String compression() default "NONE";
+
+    /**
+     * 多个提供者之间的选择策略，见 LoadBalancerType
+     */
+    String loadBalancer() default "CONSISTENT_HASH";
+
+    /**
+     * 一致性哈希使用的参数下标，-1 表示按服务哈希；方法参数标注了 @RpcHashKey 时以标注为准
+     */
+    int hashArgument() default 0;
+
 }
@@ -1,7 +1,7 @@
 package com.mini.rpc.consumer.handler;
 
-import com.mini.rpc.common.MiniRpcRequestHolder;
 import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.handler.MiniRpcRequestHolder;
 import com.mini.rpc.protocol.MiniRpcProtocol;
 import com.mini.rpc.protocol.MsgHeader;
 import com.mini.rpc.protocol.MsgType;
@@ -53,7 +53,7 @@ public class HeartbeatHandler extends ChannelInboundHandlerAdapter {
         int port = intSocket.getPort();
         //使用过程中断线重连
         log.error("{}:{} 断线连接中...",clientIp,port);
-        rpcConsumer.connect();
+        rpcConsumer.reconnect(ctx.channel());
         ctx.fireChannelInactive();
     }
 
@@ -72,7 +72,7 @@ public class HeartbeatHandler extends ChannelInboundHandlerAdapter {
                 log.info("发送心跳 {}",ProtocolConstants.PING);
                 MiniRpcProtocol<String> protocol = new MiniRpcProtocol<>();
                 MsgHeader header = new MsgHeader();
-                long requestId = MiniRpcRequestHolder.REQUEST_ID_GEN.incrementAndGet();
+                long requestId = MiniRpcRequestHolder.get(ctx.channel()).nextRequestId();
                 header.setMagic(ProtocolConstants.MAGIC);
                 header.setVersion(ProtocolConstants.VERSION);
                 header.setRequestId(requestId);
@@ -0,0 +1,50 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.provider.registry.loadbalancer.ConsistentHashRing;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+
+import java.util.List;
+
+/**
+ * 有界负载的一致性哈希：每个提供者的未完成调用数上限为 loadFactor * (总未完成调用数 + 1) / 提供者数，
+ * 达到上限时顺时针溢出到下一个提供者，热点参数不会压垮单个提供者
+ */
+public class ConsistentHashLoadBalancer implements ServiceLoadBalancer<RpcConsumer> {
+
+    private final int virtualNodeSize;
+
+    /**
+     * 小于等于 0 时不限制负载
+     */
+    private final double loadFactor;
+
+    /**
+     * 提供者列表不变时复用哈希环
+     */
+    private volatile ConsistentHashRing<RpcConsumer> ring;
+
+    public ConsistentHashLoadBalancer(int virtualNodeSize, double loadFactor) {
+        this.virtualNodeSize = Math.max(1, virtualNodeSize);
+        this.loadFactor = loadFactor;
+    }
+
+    @Override
+    public RpcConsumer select(List<RpcConsumer> servers, int hashCode) {
+        ConsistentHashRing<RpcConsumer> current = ring;
+        if (current == null || current.getServers() != servers) {
+            current = new ConsistentHashRing<>(servers, server -> server.host + ":" + server.port, virtualNodeSize);
+            ring = current;
+        }
+        int size = servers.size();
+        if (loadFactor <= 0 || size <= 1) {
+            return current.select(hashCode);
+        }
+        int totalActive = 0;
+        for (int i = 0; i < size; i++) {
+            totalActive += servers.get(i).getActive();
+        }
+        int capacity = (int) Math.ceil(loadFactor * (totalActive + 1) / size);
+        return current.select(hashCode, server -> server.getActive() < capacity);
+    }
+}
@@ -0,0 +1,39 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class LeastActiveLoadBalancer implements ServiceLoadBalancer<RpcConsumer> {
+
+    @Override
+    public RpcConsumer select(List<RpcConsumer> servers, int hashCode) {
+        int size = servers.size();
+        if (size <= 1) {
+            return size == 0 ? null : servers.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        RpcConsumer selected = null;
+        int leastActive = Integer.MAX_VALUE;
+        int tieWeight = 0;
+        for (int i = 0; i < size; i++) {
+            RpcConsumer server = servers.get(i);
+            int active = server.getActive();
+            int weight = Math.max(1, server.getEffectiveWeight());
+            if (active < leastActive) {
+                leastActive = active;
+                selected = server;
+                tieWeight = weight;
+            } else if (active == leastActive) {
+                // 未完成调用数相同的提供者之间按权重做蓄水池抽样
+                tieWeight += weight;
+                if (random.nextInt(tieWeight) < weight) {
+                    selected = server;
+                }
+            }
+        }
+        return selected;
+    }
+}
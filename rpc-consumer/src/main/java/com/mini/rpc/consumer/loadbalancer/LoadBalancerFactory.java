@@ -0,0 +1,27 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.common.RpcProperties;
+import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+
+public class LoadBalancerFactory {
+
+    /**
+     * 负载均衡器带有按服务维护的状态，每个引用各自创建
+     */
+    public static ServiceLoadBalancer<RpcConsumer> create(LoadBalancerType type, RpcProperties properties) {
+        switch (type) {
+            case RANDOM:
+                return new RandomLoadBalancer();
+            case ROUND_ROBIN:
+                return new RoundRobinLoadBalancer();
+            case LEAST_ACTIVE:
+                return new LeastActiveLoadBalancer();
+            case P2C:
+                return new P2CLoadBalancer();
+            case CONSISTENT_HASH:
+            default:
+                return new ConsistentHashLoadBalancer(properties.getVirtualNodeSize(), properties.getConsistentHashLoadFactor());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+/**
+ * 消费者在服务的多个提供者之间的选择策略
+ */
+public enum LoadBalancerType {
+    /**
+     * 按哈希参数（默认首个参数）一致性哈希，相同参数优先落到同一提供者，提供者负载超过上限时溢出到下一个
+     */
+    CONSISTENT_HASH,
+    /**
+     * 按权重随机
+     */
+    RANDOM,
+    /**
+     * 平滑加权轮询
+     */
+    ROUND_ROBIN,
+    /**
+     * 选择未完成调用最少的提供者，相同时按权重随机
+     */
+    LEAST_ACTIVE,
+    /**
+     * 随机取两个提供者，选择耗时指数平均乘以未完成调用数较小的一个
+     */
+    P2C
+}
@@ -0,0 +1,31 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices：随机取两个不同的提供者，比较 {@link RpcConsumer#getLoad()} 选择负载较低者，
+ * 变慢或过载的提供者的耗时指数平均升高，流量随之转移
+ */
+public class P2CLoadBalancer implements ServiceLoadBalancer<RpcConsumer> {
+
+    @Override
+    public RpcConsumer select(List<RpcConsumer> servers, int hashCode) {
+        int size = servers.size();
+        if (size <= 1) {
+            return size == 0 ? null : servers.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        RpcConsumer a = servers.get(first);
+        RpcConsumer b = servers.get(second);
+        return a.getLoad() <= b.getLoad() ? a : b;
+    }
+}
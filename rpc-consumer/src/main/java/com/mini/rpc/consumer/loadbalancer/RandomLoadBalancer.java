@@ -0,0 +1,37 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RandomLoadBalancer implements ServiceLoadBalancer<RpcConsumer> {
+
+    @Override
+    public RpcConsumer select(List<RpcConsumer> servers, int hashCode) {
+        int size = servers.size();
+        if (size <= 1) {
+            return size == 0 ? null : servers.get(0);
+        }
+        // 有效权重随负载报告变化，只读取一次
+        int[] weights = new int[size];
+        int totalWeight = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = Math.max(0, servers.get(i).getEffectiveWeight());
+            totalWeight += weights[i];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (totalWeight <= 0) {
+            return servers.get(random.nextInt(size));
+        }
+        int offset = random.nextInt(totalWeight);
+        for (int i = 0; i < size; i++) {
+            offset -= weights[i];
+            if (offset < 0) {
+                return servers.get(i);
+            }
+        }
+        return servers.get(size - 1);
+    }
+}
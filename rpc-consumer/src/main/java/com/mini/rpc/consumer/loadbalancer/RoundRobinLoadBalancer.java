@@ -0,0 +1,42 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.provider.registry.loadbalancer.ServiceLoadBalancer;
+
+import java.util.List;
+
+/**
+ * 平滑加权轮询：每次选择时所有提供者的当前权重加上各自权重，选中当前权重最大者并减去总权重，
+ * 权重高的提供者不会被连续集中选中
+ */
+public class RoundRobinLoadBalancer implements ServiceLoadBalancer<RpcConsumer> {
+
+    private List<RpcConsumer> servers;
+
+    private long[] currentWeights;
+
+    @Override
+    public synchronized RpcConsumer select(List<RpcConsumer> servers, int hashCode) {
+        int size = servers.size();
+        if (size <= 1) {
+            return size == 0 ? null : servers.get(0);
+        }
+        if (servers != this.servers) {
+            // 提供者列表变化后重新开始轮询
+            this.servers = servers;
+            this.currentWeights = new long[size];
+        }
+        long totalWeight = 0;
+        int selected = 0;
+        for (int i = 0; i < size; i++) {
+            int weight = Math.max(1, servers.get(i).getEffectiveWeight());
+            currentWeights[i] += weight;
+            totalWeight += weight;
+            if (currentWeights[i] > currentWeights[selected]) {
+                selected = i;
+            }
+        }
+        currentWeights[selected] -= totalWeight;
+        return servers.get(selected);
+    }
+}
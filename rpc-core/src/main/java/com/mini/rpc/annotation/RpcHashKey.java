@@ -0,0 +1,14 @@
+package com.mini.rpc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在服务接口方法的参数上，一致性哈希负载均衡按该参数选择提供者，优先于 @RpcReference 的 hashArgument
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface RpcHashKey {
+}
@@ -1,15 +1,179 @@
 package com.mini.rpc.common;
 
-import io.netty.util.concurrent.Promise;
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
-@Data
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * 单次调用的结果，由 I/O 线程完成，等待方直接 park 在调用线程上，不依赖额外的执行器
+ * <p>
+ * 同步等待只支持一个线程（发起调用的线程），回调在完成结果的线程上执行
+ */
+@Slf4j
 public class MiniRpcFuture<T> {
-    private Promise<T> promise;
-    private long timeout;
 
-    public MiniRpcFuture(Promise<T> promise, long timeout) {
-        this.promise = promise;
+    private static final Object NULL = new Object();
+    private static final Listener<?> COMPLETED = new Listener<>(null, null);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MiniRpcFuture, Object> RESULT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(MiniRpcFuture.class, Object.class, "result");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MiniRpcFuture, Listener> LISTENERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(MiniRpcFuture.class, Listener.class, "listeners");
+
+    @Getter
+    private final long timeout;
+
+    /**
+     * 登记到连接上时分配的请求 ID
+     */
+    @Getter
+    @Setter
+    private long requestId;
+
+    private volatile Object result;
+
+    private volatile Thread waiter;
+
+    private volatile Listener<T> listeners;
+
+    public MiniRpcFuture(long timeout) {
         this.timeout = timeout;
     }
+
+    public boolean trySuccess(T value) {
+        return complete(value == null ? NULL : value);
+    }
+
+    public boolean tryFailure(Throwable cause) {
+        return complete(new Failure(cause));
+    }
+
+    public boolean isDone() {
+        return result != null;
+    }
+
+    public boolean isSuccess() {
+        Object r = result;
+        return r != null && !(r instanceof Failure);
+    }
+
+    public Throwable cause() {
+        Object r = result;
+        return r instanceof Failure ? ((Failure) r).cause : null;
+    }
+
+    /**
+     * 未完成或失败时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public T getNow() {
+        Object r = result;
+        return r == null || r == NULL || r instanceof Failure ? null : (T) r;
+    }
+
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (result == null) {
+            await(unit.toNanos(timeout));
+        }
+        return report();
+    }
+
+    /**
+     * 注册完成回调，已完成时立即在当前线程执行
+     */
+    @SuppressWarnings("unchecked")
+    public void onComplete(BiConsumer<? super T, ? super Throwable> action) {
+        Listener<T> head;
+        do {
+            head = listeners;
+            if (head == COMPLETED) {
+                fire(action);
+                return;
+            }
+        } while (!LISTENERS_UPDATER.compareAndSet(this, head, new Listener<>(action, head)));
+    }
+
+    private void await(long nanos) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + nanos;
+        waiter = Thread.currentThread();
+        try {
+            while (result == null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T report() throws ExecutionException {
+        Object r = result;
+        if (r instanceof Failure) {
+            throw new ExecutionException(((Failure) r).cause);
+        }
+        return r == NULL ? null : (T) r;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean complete(Object value) {
+        if (!RESULT_UPDATER.compareAndSet(this, null, value)) {
+            return false;
+        }
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+        Listener<T> head = LISTENERS_UPDATER.getAndSet(this, COMPLETED);
+        // 回调按注册顺序执行
+        Listener<T> reversed = null;
+        for (Listener<T> node = head; node != null; node = node.next) {
+            reversed = new Listener<>(node.action, reversed);
+        }
+        for (Listener<T> node = reversed; node != null; node = node.next) {
+            fire(node.action);
+        }
+        return true;
+    }
+
+    private void fire(BiConsumer<? super T, ? super Throwable> action) {
+        try {
+            action.accept(getNow(), cause());
+        } catch (Throwable e) {
+            log.warn("rpc future listener error", e);
+        }
+    }
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    private static final class Listener<T> {
+        private final BiConsumer<? super T, ? super Throwable> action;
+        private final Listener<T> next;
+
+        private Listener(BiConsumer<? super T, ? super Throwable> action, Listener<T> next) {
+            this.action = action;
+            this.next = next;
+        }
+    }
 }
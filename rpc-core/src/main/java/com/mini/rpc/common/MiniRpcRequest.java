@@ -11,4 +11,8 @@ public class MiniRpcRequest implements Serializable {
     private String methodName;
     private Object[] params;
     private Class<?>[] parameterTypes;
+    /**
+     * 连接内协商出的方法 ID，大于 0 时 className、methodName、serviceVersion、parameterTypes 均不再发送
+     */
+    private int methodId;
 }
@@ -1,12 +0,0 @@
-package com.mini.rpc.common;
-
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-
-public class MiniRpcRequestHolder {
-
-    public final static AtomicLong REQUEST_ID_GEN = new AtomicLong(0);
-
-    public static final Map<Long, MiniRpcFuture<MiniRpcResponse>> REQUEST_MAP = new ConcurrentHashMap<>();
-}
@@ -8,4 +8,8 @@ import java.io.Serializable;
 public class MiniRpcResponse implements Serializable {
     private Object data;
     private String message;
+    /**
+     * 提供者为完整请求分配的方法 ID，消费者在同一连接上的后续请求可只携带该 ID
+     */
+    private int methodId;
 }
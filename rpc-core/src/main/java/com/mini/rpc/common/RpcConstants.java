@@ -2,4 +2,6 @@ package com.mini.rpc.common;
 
 public class RpcConstants {
     public static final String INIT_METHOD_NAME = "init";
+
+    public static final int DEFAULT_WEIGHT = 100;
 }
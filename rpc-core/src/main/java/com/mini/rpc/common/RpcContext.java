@@ -0,0 +1,48 @@
+package com.mini.rpc.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提供者处理请求时的调用上下文，保存调用方传来的截止时间，仅在业务方法同步执行期间有效
+ * <p>
+ * 在业务方法中发起的下游调用会自动以剩余时间作为超时上限
+ */
+public final class RpcContext {
+
+    private static final ThreadLocal<RpcContext> CONTEXT = ThreadLocal.withInitial(RpcContext::new);
+
+    private long deadlineNanos;
+
+    private boolean hasDeadline;
+
+    private RpcContext() {
+    }
+
+    public static boolean hasDeadline() {
+        return CONTEXT.get().hasDeadline;
+    }
+
+    /**
+     * 距截止时间的剩余毫秒数，已过期时不大于 0，没有截止时间时返回 Long.MAX_VALUE
+     */
+    public static long getRemainingMillis() {
+        RpcContext context = CONTEXT.get();
+        if (!context.hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(context.deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * 框架在调用业务方法前设置，deadlineNanos 为 System.nanoTime() 下的截止时间
+     */
+    public static void setDeadline(long deadlineNanos) {
+        RpcContext context = CONTEXT.get();
+        context.deadlineNanos = deadlineNanos;
+        context.hasDeadline = true;
+    }
+
+    public static void clear() {
+        CONTEXT.get().hasDeadline = false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.mini.rpc.common;
+
+/**
+ * 提供者返回失败状态时抛出，消息为提供者侧的异常描述
+ */
+public class RpcException extends RuntimeException {
+
+    private static final long serialVersionUID = -6182541328519204376L;
+
+    public RpcException(String msg) {
+        super(msg);
+    }
+
+    public RpcException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
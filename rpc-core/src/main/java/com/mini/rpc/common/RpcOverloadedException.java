@@ -0,0 +1,13 @@
+package com.mini.rpc.common;
+
+/**
+ * 提供者并发已达上限，请求未执行即被拒绝，可以安全地改投其他提供者重试
+ */
+public class RpcOverloadedException extends RpcException {
+
+    private static final long serialVersionUID = 3728401956230418853L;
+
+    public RpcOverloadedException(String msg) {
+        super(msg);
+    }
+}
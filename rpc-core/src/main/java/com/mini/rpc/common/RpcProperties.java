@@ -3,14 +3,122 @@ package com.mini.rpc.common;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.io.File;
+
 @Data
 @ConfigurationProperties(prefix = "rpc")
 public class RpcProperties {
 
     private int servicePort;
 
+    /**
+     * 提供者注册的权重，加权负载均衡策略按此分配流量
+     */
+    private int weight = RpcConstants.DEFAULT_WEIGHT;
+
     private String registryAddr;
 
     private String registryType;
 
+    /**
+     * 惰性解码，开启后请求和响应体在业务线程上反序列化，I/O 线程只负责拆包
+     */
+    private boolean lazyDecode;
+
+    /**
+     * 数据内容达到该字节数且对端接受压缩时才压缩
+     */
+    private int compressThreshold = 4096;
+
+    /**
+     * 单个报文数据内容的长度上限（字节），报文长度或压缩数据声明的原始长度超过时拒绝，避免对端迫使本端分配过大的内存
+     */
+    private int maxBodySize = 16 * 1024 * 1024;
+
+    /**
+     * 提供者共享执行器的类型：POOL 线程池，DIRECT 在 I/O 线程上执行，VIRTUAL 每个请求一个虚拟线程（JVM 不支持时退化为 POOL）
+     */
+    private String executorType = "POOL";
+
+    /**
+     * 提供者线程池的线程数，@RpcService 未指定线程数的独占线程池也使用该值
+     */
+    private int executorThreads = 200;
+
+    /**
+     * 提供者线程池的队列长度，队列满时请求直接以失败响应
+     */
+    private int executorQueueSize = 10000;
+
+    /**
+     * 提供者按请求耗时自适应调整每个执行器的并发上限，初始值为执行器的线程数，超过上限的请求立即以 OVERLOADED 响应
+     */
+    private boolean adaptiveLimit = true;
+
+    /**
+     * 自适应并发上限的下限
+     */
+    private int adaptiveLimitMin = 20;
+
+    /**
+     * 自适应并发上限的上限
+     */
+    private int adaptiveLimitMax = 1000;
+
+    /**
+     * 提供者在同一连接上两次附带负载报告（执行中、排队请求数和近期 p99 耗时）的最小间隔，毫秒；小于 0 时不报告
+     */
+    private long loadReportIntervalMillis = 100;
+
+    /**
+     * 合并写：每批最多写出的消息数，写满即 flush
+     */
+    private int writeMaxBatch = 64;
+
+    /**
+     * 合并写：首条消息最多等待多少微秒再 flush，0 表示 I/O 线程空闲即刻写出
+     */
+    private long writeMaxDelayMicros;
+
+    /**
+     * 消费者共享的 I/O 线程数，0 表示使用 Netty 默认值（CPU 核数 * 2）
+     */
+    private int consumerIoThreads;
+
+    /**
+     * 消费者解码异步调用响应并回调 CompletableFuture 的线程数，0 表示 CPU 核数；回调中不要执行阻塞操作
+     */
+    private int consumerCallbackThreads;
+
+    /**
+     * 消费者到每个提供者地址建立的连接数
+     */
+    private int connectionsPerEndpoint = 2;
+
+    /**
+     * 单条连接上同时等待响应的请求上限，向上取整为 2 的幂
+     */
+    private int maxPendingPerConnection = 4096;
+
+    /**
+     * 消费者在同一地址的多条连接间的选择策略：ROUND_ROBIN 轮询，LEAST_PENDING 最少未完成调用
+     */
+    private String channelSelectStrategy = "ROUND_ROBIN";
+
+    /**
+     * 一致性哈希环上每个提供者的虚拟节点数，越多分布越均匀，重建哈希环的开销越大
+     */
+    private int virtualNodeSize = 160;
+
+    /**
+     * 一致性哈希的负载上限系数，每个提供者的未完成调用数不超过平均值的该倍数，超过时溢出到环上的下一个提供者；
+     * 小于等于 0 时不限制
+     */
+    private double consistentHashLoadFactor = 1.25;
+
+    /**
+     * 注册中心实例列表的本地快照目录，启动时先按快照路由，注册中心不可用时继续使用；为空时不保存快照
+     */
+    private String registrySnapshotDir = System.getProperty("user.home") + File.separator + ".mini-rpc";
+
 }
@@ -3,7 +3,21 @@ package com.mini.rpc.common;
 public class RpcServiceHelper {
 
     public static final String SERVICE_JOIN = "@";
+    public static final String METHOD_JOIN = "#";
     public static String buildServiceKey(String serviceName, String serviceVersion) {
-        return String.join(SERVICE_JOIN, serviceName, serviceVersion);
+        return serviceName + SERVICE_JOIN + serviceVersion;
+    }
+
+    public static String buildMethodKey(String serviceKey, String methodName, Class<?>[] parameterTypes) {
+        StringBuilder key = new StringBuilder(serviceKey).append(METHOD_JOIN).append(methodName).append('(');
+        if (parameterTypes != null) {
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) {
+                    key.append(',');
+                }
+                key.append(parameterTypes[i].getName());
+            }
+        }
+        return key.append(')').toString();
     }
 }
@@ -15,4 +15,9 @@ public class ServiceMeta {
 
     private int servicePort;
 
+    /**
+     * 提供者权重，加权负载均衡策略按此分配流量
+     */
+    private int weight = RpcConstants.DEFAULT_WEIGHT;
+
 }
@@ -1,15 +1,12 @@
 package com.mini.rpc.codec;
 
 import com.mini.rpc.common.MiniRpcRequest;
-import com.mini.rpc.common.MiniRpcRequestHolder;
 import com.mini.rpc.common.MiniRpcResponse;
 import com.mini.rpc.protocol.MiniRpcProtocol;
 import com.mini.rpc.protocol.MsgHeader;
 import com.mini.rpc.protocol.MsgType;
 import com.mini.rpc.protocol.ProtocolConstants;
-import com.mini.rpc.serialization.RpcSerialization;
 import com.mini.rpc.serialization.SerializationFactory;
-import com.mini.rpc.serialization.SerializationTypeEnum;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
@@ -21,77 +18,121 @@ import java.util.Objects;
 @Slf4j
 public class MiniRpcDecoder extends ByteToMessageDecoder {
 
+    /**
+     * 惰性解码：请求和响应只切出数据内容交给后续处理器，解压和反序列化放到业务线程，I/O 线程只负责拆包
+     */
+    private final boolean lazyDecode;
+
+    /**
+     * 报文数据内容及解压后长度的上限
+     */
+    private final int maxBodySize;
+
+    public MiniRpcDecoder() {
+        this(false);
+    }
+
+    public MiniRpcDecoder(boolean lazyDecode) {
+        this(lazyDecode, ProtocolConstants.DEFAULT_MAX_BODY_SIZE);
+    }
+
+    public MiniRpcDecoder(boolean lazyDecode, int maxBodySize) {
+        this.lazyDecode = lazyDecode;
+        this.maxBodySize = maxBodySize;
+    }
+
     /*
     +---------------------------------------------------------------+
     | 魔数 2byte | 协议版本号 1byte | 序列化算法 1byte | 报文类型 1byte  |
     +---------------------------------------------------------------+
-    | 状态 1byte |        消息 ID 8byte     |      数据长度 4byte     |
+    | 状态 1byte |        消息 ID 8byte     | 剩余超时/负载报告 4byte | 数据长度 4byte |
     +---------------------------------------------------------------+
     |                   数据内容 （长度不定）                          |
     +---------------------------------------------------------------+
     */
     @Override
     public final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        if (in.readableBytes() < ProtocolConstants.HEADER_TOTAL_LEN) {
+        // 魔数和版本号先于完整报文头校验，旧版本对端的报文头较短，不能等凑满新报文头的长度才发现
+        if (in.readableBytes() < 3) {
             return;
         }
-        in.markReaderIndex();
-
-        short magic = in.readShort();
+        int start = in.readerIndex();
+        short magic = in.getShort(start);
         if (magic != ProtocolConstants.MAGIC) {
-            throw new IllegalArgumentException("magic number is illegal, " + magic);
+            reject(ctx, in, "magic number is illegal, " + magic);
+            return;
+        }
+        byte version = in.getByte(start + 2);
+        if (version != ProtocolConstants.VERSION) {
+            reject(ctx, in, String.format("unsupported protocol version %d, expected %d", version, ProtocolConstants.VERSION));
+            return;
+        }
+        if (in.readableBytes() < ProtocolConstants.HEADER_TOTAL_LEN) {
+            return;
         }
+        in.markReaderIndex();
+        in.skipBytes(3);
 
-        byte version = in.readByte();
         byte serializeType = in.readByte();
         byte msgType = in.readByte();
         byte status = in.readByte();
         long requestId = in.readLong();
+        int timeout = in.readInt();
 
         int dataLength = in.readInt();
+        if (dataLength < 0 || dataLength > maxBodySize) {
+            // 不再等待超长报文的剩余数据，之后的字节也无法再对齐报文边界
+            reject(ctx, in, String.format("message length %d exceeds limit %d", dataLength, maxBodySize));
+            return;
+        }
         if (in.readableBytes() < dataLength) {
             in.resetReaderIndex();
             return;
         }
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
-
         MsgType msgTypeEnum = MsgType.findByType(msgType);
         if (msgTypeEnum == null) {
+            in.skipBytes(dataLength);
             return;
         }
 
         MsgHeader header = new MsgHeader();
         header.setMagic(magic);
         header.setVersion(version);
-        header.setSerialization(serializeType);
+        header.setSerialization((byte) (serializeType & ProtocolConstants.SERIALIZATION_MASK));
+        header.setCompression((byte) (serializeType & ~ProtocolConstants.SERIALIZATION_MASK));
         header.setStatus(status);
         header.setRequestId(requestId);
+        header.setTimeout(timeout);
         header.setMsgType(msgType);
         header.setMsgLen(dataLength);
 
-        RpcSerialization rpcSerialization = SerializationFactory.getRpcSerialization(serializeType);
+        // 数据内容切片由 decodeBody 解压、反序列化后释放，惰性解码时留给业务线程处理
         switch (msgTypeEnum) {
             case REQUEST:
-                MiniRpcRequest request = rpcSerialization.deserialize(data, MiniRpcRequest.class);
-                if (request != null) {
-                    MiniRpcProtocol<MiniRpcRequest> protocol = new MiniRpcProtocol<>();
-                    protocol.setHeader(header);
-                    protocol.setBody(request);
-                    out.add(protocol);
-                }
+                MiniRpcProtocol<MiniRpcRequest> request = new MiniRpcProtocol<>();
+                request.setHeader(header);
+                request.setPayload(in.readRetainedSlice(dataLength));
+                request.setMaxBodySize(maxBodySize);
+                decodeEagerly(request, MiniRpcRequest.class);
+                out.add(request);
                 break;
             case RESPONSE:
-                MiniRpcResponse response = rpcSerialization.deserialize(data, MiniRpcResponse.class);
-                if (response != null) {
-                    MiniRpcProtocol<MiniRpcResponse> protocol = new MiniRpcProtocol<>();
-                    protocol.setHeader(header);
-                    protocol.setBody(response);
-                    out.add(protocol);
-                }
+                MiniRpcProtocol<MiniRpcResponse> response = new MiniRpcProtocol<>();
+                response.setHeader(header);
+                response.setPayload(in.readRetainedSlice(dataLength));
+                response.setMaxBodySize(maxBodySize);
+                decodeEagerly(response, MiniRpcResponse.class);
+                out.add(response);
+                break;
+            case CANCEL:
+                in.skipBytes(dataLength);
+                MiniRpcProtocol<MiniRpcRequest> cancel = new MiniRpcProtocol<>();
+                cancel.setHeader(header);
+                out.add(cancel);
                 break;
             case HEARTBEAT:
-                String heart = rpcSerialization.deserialize(data, String.class);
+                String heart = SerializationFactory.getRpcSerialization(header.getSerialization())
+                        .deserialize(in.readSlice(dataLength), String.class);
                 log.info("收到心跳:{}",heart);
                 if(Objects.equals(heart,ProtocolConstants.PING)){
                     /**响应心跳*/
@@ -104,4 +145,25 @@ public class MiniRpcDecoder extends ByteToMessageDecoder {
                 break;
         }
     }
+
+    private static void reject(ChannelHandlerContext ctx, ByteBuf in, String reason) {
+        log.error("close connection {}: {}", ctx.channel().remoteAddress(), reason);
+        in.skipBytes(in.readableBytes());
+        ctx.close();
+    }
+
+    /**
+     * 非惰性解码时在 I/O 线程上解码；失败时报文仍交给后续处理器，由请求处理或调用方再次 decodeBody 时得到真实的解码异常，
+     * 而不是等到超时
+     */
+    private <T> void decodeEagerly(MiniRpcProtocol<T> protocol, Class<T> bodyClass) {
+        if (lazyDecode) {
+            return;
+        }
+        try {
+            protocol.decodeBody(bodyClass);
+        } catch (RuntimeException e) {
+            log.warn("decode message {} error", protocol.getHeader().getRequestId(), e);
+        }
+    }
 }
@@ -1,36 +1,95 @@
 package com.mini.rpc.codec;
 
+import com.mini.rpc.compress.CompressionFactory;
+import com.mini.rpc.compress.RpcCompression;
 import com.mini.rpc.protocol.MiniRpcProtocol;
 import com.mini.rpc.protocol.MsgHeader;
+import com.mini.rpc.protocol.ProtocolConstants;
 import com.mini.rpc.serialization.RpcSerialization;
 import com.mini.rpc.serialization.SerializationFactory;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+import java.io.IOException;
+
+@ChannelHandler.Sharable
 public class MiniRpcEncoder extends MessageToByteEncoder<MiniRpcProtocol<Object>> {
 
+    /**
+     * 数据内容达到该字节数且对端接受压缩时才压缩，小报文压缩收益抵不上开销
+     */
+    private final int compressThreshold;
+
+    public MiniRpcEncoder(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
     /*
     +---------------------------------------------------------------+
     | 魔数 2byte | 协议版本号 1byte | 序列化算法 1byte | 报文类型 1byte  |
     +---------------------------------------------------------------+
-    | 状态 1byte |        消息 ID 8byte     |      数据长度 4byte     |
+    | 状态 1byte |        消息 ID 8byte     | 剩余超时/负载报告 4byte | 数据长度 4byte |
     +---------------------------------------------------------------+
     |                   数据内容 （长度不定）                          |
     +---------------------------------------------------------------+
     */
     @Override
     protected void encode(ChannelHandlerContext ctx, MiniRpcProtocol<Object> msg, ByteBuf byteBuf) throws Exception {
+        writeFrame(msg, byteBuf);
+    }
+
+    /**
+     * 在调用方线程上编码成完整报文，之后写出的 ByteBuf 直接穿过本编码器，序列化和压缩不占用 I/O 线程
+     */
+    public ByteBuf encode(ByteBufAllocator alloc, MiniRpcProtocol<?> msg) throws IOException {
+        ByteBuf byteBuf = alloc.ioBuffer();
+        try {
+            writeFrame(msg, byteBuf);
+            return byteBuf;
+        } catch (IOException | RuntimeException e) {
+            byteBuf.release();
+            throw e;
+        }
+    }
+
+    private void writeFrame(MiniRpcProtocol<?> msg, ByteBuf byteBuf) throws IOException {
         MsgHeader header = msg.getHeader();
+        int compressionType = header.getCompression() & ProtocolConstants.COMPRESSION_MASK;
         byteBuf.writeShort(header.getMagic());
         byteBuf.writeByte(header.getVersion());
-        byteBuf.writeByte(header.getSerialization());
+        int serializationIndex = byteBuf.writerIndex();
+        byteBuf.writeByte(header.getSerialization() | compressionType);
         byteBuf.writeByte(header.getMsgType());
         byteBuf.writeByte(header.getStatus());
         byteBuf.writeLong(header.getRequestId());
-        RpcSerialization rpcSerialization = SerializationFactory.getRpcSerialization(header.getSerialization());
-        byte[] data = rpcSerialization.serialize(msg.getBody());
-        byteBuf.writeInt(data.length);
-        byteBuf.writeBytes(data);
+        byteBuf.writeInt(header.getTimeout());
+        // 先占位数据长度，序列化结果直接写入 byteBuf 后再回填长度
+        int lengthIndex = byteBuf.writerIndex();
+        byteBuf.writeInt(0);
+        // 取消报文没有数据内容
+        if (msg.getBody() != null) {
+            RpcSerialization rpcSerialization = SerializationFactory.getRpcSerialization(header.getSerialization());
+            rpcSerialization.serialize(msg.getBody(), byteBuf);
+        }
+
+        int bodyIndex = lengthIndex + 4;
+        int bodyLength = byteBuf.writerIndex() - bodyIndex;
+        RpcCompression compression = CompressionFactory.getRpcCompression((byte) compressionType);
+        if (compression != null && bodyLength >= compressThreshold) {
+            ByteBuf compressed = compression.compress(byteBuf.slice(bodyIndex, bodyLength), byteBuf.alloc());
+            try {
+                // 压缩后不变小则保持原样发送
+                if (compressed.readableBytes() < bodyLength) {
+                    byteBuf.writerIndex(bodyIndex).writeBytes(compressed);
+                    byteBuf.setByte(serializationIndex, header.getSerialization() | compressionType | ProtocolConstants.COMPRESSED_FLAG);
+                }
+            } finally {
+                compressed.release();
+            }
+        }
+        byteBuf.setInt(lengthIndex, byteBuf.writerIndex() - bodyIndex);
     }
 }
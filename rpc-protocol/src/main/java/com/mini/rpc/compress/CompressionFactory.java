@@ -0,0 +1,18 @@
+package com.mini.rpc.compress;
+
+public class CompressionFactory {
+
+    /**
+     * 按压缩类型直接下标查找，NONE 及未知类型为 null
+     */
+    private static final RpcCompression[] COMPRESSIONS = new RpcCompression[8];
+
+    static {
+        COMPRESSIONS[CompressionTypeEnum.LZ4.getType()] = new Lz4Compression();
+        COMPRESSIONS[CompressionTypeEnum.DEFLATE.getType()] = new DeflateCompression();
+    }
+
+    public static RpcCompression getRpcCompression(byte compressionType) {
+        return COMPRESSIONS[compressionType & (COMPRESSIONS.length - 1)];
+    }
+}
@@ -0,0 +1,25 @@
+package com.mini.rpc.compress;
+
+import lombok.Getter;
+
+public enum CompressionTypeEnum {
+    NONE(0x0),
+    LZ4(0x1),
+    DEFLATE(0x2);
+
+    @Getter
+    private final int type;
+
+    CompressionTypeEnum(int type) {
+        this.type = type;
+    }
+
+    public static CompressionTypeEnum findByType(byte compressionType) {
+        for (CompressionTypeEnum typeEnum : CompressionTypeEnum.values()) {
+            if (typeEnum.getType() == compressionType) {
+                return typeEnum;
+            }
+        }
+        return NONE;
+    }
+}
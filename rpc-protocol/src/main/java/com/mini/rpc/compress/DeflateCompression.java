@@ -0,0 +1,82 @@
+package com.mini.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate 压缩，压缩率优先；Deflater / Inflater 持有本地内存，按线程复用
+ */
+public class DeflateCompression implements RpcCompression {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    @Override
+    public ByteBuf compress(ByteBuf in, ByteBufAllocator alloc) {
+        int length = in.readableBytes();
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        setInput(in, length, deflater::setInput);
+        deflater.finish();
+
+        ByteBuf out = alloc.heapBuffer(4 + Math.min(length, CHUNK_SIZE));
+        out.writeInt(length);
+        while (!deflater.finished()) {
+            out.ensureWritable(CHUNK_SIZE);
+            int n = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+            out.writerIndex(out.writerIndex() + n);
+        }
+        return out;
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException {
+        int length = RpcCompression.readLength(in, maxLength);
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        setInput(in, in.readableBytes(), inflater::setInput);
+
+        ByteBuf out = alloc.heapBuffer(length, length);
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || !out.isWritable())) {
+                    throw new IOException("malformed deflate data");
+                }
+                out.writerIndex(out.writerIndex() + n);
+            }
+            if (out.isWritable()) {
+                throw new IOException(String.format("deflate data inflated to %d bytes, declared %d", out.writerIndex(), length));
+            }
+            return out;
+        } catch (DataFormatException e) {
+            out.release();
+            throw new IOException("malformed deflate data", e);
+        } catch (IOException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    private interface InputSetter {
+        void setInput(byte[] b, int off, int len);
+    }
+
+    private static void setInput(ByteBuf in, int length, InputSetter setter) {
+        if (in.hasArray()) {
+            setter.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+        } else {
+            setter.setInput(ByteBufUtil.getBytes(in, in.readerIndex(), length), 0, length);
+        }
+        in.skipBytes(length);
+    }
+}
@@ -0,0 +1,64 @@
+package com.mini.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * LZ4 压缩，速度优先，压缩器和解压器均线程安全；解压使用按输入长度校验边界的 safe 解压器，不信任对端声明的长度
+ */
+public class Lz4Compression implements RpcCompression {
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+
+    private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+    @Override
+    public ByteBuf compress(ByteBuf in, ByteBufAllocator alloc) {
+        int length = in.readableBytes();
+        int maxLength = COMPRESSOR.maxCompressedLength(length);
+        ByteBuf out = alloc.buffer(4 + maxLength);
+        try {
+            out.writeInt(length);
+            ByteBuffer src = in.nioBuffer(in.readerIndex(), length);
+            ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxLength);
+            int compressedLength = COMPRESSOR.compress(src, src.position(), length, dest, dest.position(), maxLength);
+            in.skipBytes(length);
+            out.writerIndex(out.writerIndex() + compressedLength);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException {
+        int length = RpcCompression.readLength(in, maxLength);
+        int compressedLength = in.readableBytes();
+        ByteBuf out = alloc.buffer(length);
+        try {
+            ByteBuffer src = in.nioBuffer(in.readerIndex(), compressedLength);
+            ByteBuffer dest = out.nioBuffer(0, length);
+            int decompressed = DECOMPRESSOR.decompress(src, src.position(), compressedLength, dest, dest.position(), length);
+            if (decompressed != length) {
+                throw new IOException(String.format("lz4 data decompressed to %d bytes, declared %d", decompressed, length));
+            }
+            in.skipBytes(compressedLength);
+            out.writerIndex(length);
+            return out;
+        } catch (LZ4Exception e) {
+            out.release();
+            throw new IOException("malformed lz4 data", e);
+        } catch (IOException e) {
+            out.release();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.mini.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.io.IOException;
+
+/**
+ * 数据内容压缩，压缩结果以 4 字节原始长度开头，解压时据此一次分配好输出缓冲区
+ */
+public interface RpcCompression {
+
+    /**
+     * 压缩 in 的全部可读字节，返回由 alloc 分配的新缓冲区，调用方负责释放
+     */
+    ByteBuf compress(ByteBuf in, ByteBufAllocator alloc) throws IOException;
+
+    /**
+     * 解压 in 的全部可读字节，返回由 alloc 分配的新缓冲区，调用方负责释放；
+     * 声明的原始长度为负、超过 maxLength 或与实际解压出的长度不符时抛出 IOException
+     */
+    ByteBuf decompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException;
+
+    /**
+     * 读取并校验压缩数据开头声明的原始长度，在分配输出缓冲区之前调用
+     */
+    static int readLength(ByteBuf in, int maxLength) throws IOException {
+        if (in.readableBytes() < 4) {
+            throw new IOException("truncated compressed data");
+        }
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException(String.format("declared decompressed length %d exceeds limit %d", length, maxLength));
+        }
+        return length;
+    }
+}
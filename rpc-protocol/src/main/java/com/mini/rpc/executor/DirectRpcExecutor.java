@@ -0,0 +1,26 @@
+package com.mini.rpc.executor;
+
+/**
+ * 在调用线程（I/O 线程）上直接执行，省去线程切换，方法阻塞时会拖住该连接所在事件循环上的所有连接
+ */
+public class DirectRpcExecutor implements RpcExecutor {
+
+    public static final DirectRpcExecutor INSTANCE = new DirectRpcExecutor();
+
+    private DirectRpcExecutor() {
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
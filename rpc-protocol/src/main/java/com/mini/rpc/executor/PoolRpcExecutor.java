@@ -0,0 +1,45 @@
+package com.mini.rpc.executor;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 固定大小线程池，以 execute 提交，队列中保存的就是传入的任务本身，取消时可按原对象移出队列
+ */
+public class PoolRpcExecutor implements RpcExecutor {
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    public PoolRpcExecutor(String name, int threads, int queueSize) {
+        threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new DefaultThreadFactory(name));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        threadPoolExecutor.execute(task);
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        return threadPoolExecutor.remove(task);
+    }
+
+    @Override
+    public int getActiveCount() {
+        return threadPoolExecutor.getActiveCount();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return threadPoolExecutor.getQueue().size();
+    }
+
+    @Override
+    public void shutdown() {
+        threadPoolExecutor.shutdown();
+    }
+}
@@ -0,0 +1,35 @@
+package com.mini.rpc.executor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 提供者执行请求的扩展点，由 {@link RpcExecutorFactory} 按 {@link RpcExecutorType} 创建
+ */
+public interface RpcExecutor {
+
+    /**
+     * 执行请求，无法接收时抛出 RejectedExecutionException
+     */
+    void execute(Runnable task) throws RejectedExecutionException;
+
+    /**
+     * 移除尚未开始执行的请求，移除成功时该请求不会再执行；没有排队的实现返回 false
+     */
+    boolean remove(Runnable task);
+
+    /**
+     * 正在执行的请求数，用于负载报告；无法统计的实现返回 0
+     */
+    default int getActiveCount() {
+        return 0;
+    }
+
+    /**
+     * 排队等待执行的请求数，用于负载报告
+     */
+    default int getQueueSize() {
+        return 0;
+    }
+
+    void shutdown();
+}
@@ -0,0 +1,26 @@
+package com.mini.rpc.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class RpcExecutorFactory {
+
+    /**
+     * threads 和 queueSize 只对 POOL（含 VIRTUAL 退化时）生效
+     */
+    public static RpcExecutor create(RpcExecutorType type, String name, int threads, int queueSize) {
+        switch (type) {
+            case DIRECT:
+                return DirectRpcExecutor.INSTANCE;
+            case VIRTUAL:
+                if (VirtualThreadRpcExecutor.isSupported()) {
+                    return new VirtualThreadRpcExecutor();
+                }
+                log.warn("virtual threads are not supported by this JVM, {} falls back to a pool of {} threads", name, threads);
+                return new PoolRpcExecutor(name, threads, queueSize);
+            case POOL:
+            default:
+                return new PoolRpcExecutor(name, threads, queueSize);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.mini.rpc.executor;
+
+/**
+ * 提供者执行请求的方式
+ */
+public enum RpcExecutorType {
+    /**
+     * 固定大小线程池加有界队列
+     */
+    POOL,
+    /**
+     * 直接在 I/O 线程上执行，只适合不阻塞的快速方法
+     */
+    DIRECT,
+    /**
+     * 每个请求一个虚拟线程，运行时不支持虚拟线程时退化为 POOL
+     */
+    VIRTUAL
+}
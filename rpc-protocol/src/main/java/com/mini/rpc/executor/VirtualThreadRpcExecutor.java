@@ -0,0 +1,56 @@
+package com.mini.rpc.executor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 每个请求一个虚拟线程，阻塞的服务方法不再受线程数限制；通过反射获取，编译和运行在低版本 JDK 上均不受影响
+ */
+public class VirtualThreadRpcExecutor implements RpcExecutor {
+
+    private static final MethodHandle NEW_EXECUTOR = findFactory();
+
+    private final ExecutorService executorService;
+
+    public VirtualThreadRpcExecutor() {
+        if (NEW_EXECUTOR == null) {
+            throw new UnsupportedOperationException("virtual threads are not supported by this JVM");
+        }
+        try {
+            executorService = (ExecutorService) NEW_EXECUTOR.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("create virtual thread executor failed", e);
+        }
+    }
+
+    public static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executorService.execute(task);
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    private static MethodHandle findFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
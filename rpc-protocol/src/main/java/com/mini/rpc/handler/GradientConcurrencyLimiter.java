@@ -0,0 +1,139 @@
+package com.mini.rpc.handler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 提供者单个执行器的自适应并发上限，按梯度算法根据请求耗时调整：
+ * 短期耗时（最近一个窗口的平均值）明显高于长期耗时（指数平均）说明请求开始排队，按比例收缩上限；
+ * 两者接近时按 sqrt(limit) 的幅度缓慢增长。超过上限的请求立即拒绝，不进入队列
+ */
+@Slf4j
+public class GradientConcurrencyLimiter {
+
+    /**
+     * 短期耗时超过长期耗时的容忍倍数
+     */
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 长期耗时的平均窗口（短期窗口数），前若干个短期窗口取算术平均
+     */
+    private static final int LONG_WINDOW = 60;
+
+    private static final int WARMUP_WINDOWS = 3;
+
+    /**
+     * 短期耗时的窗口（样本数），每满一个窗口调整一次上限，单个慢请求不会使上限骤降
+     */
+    private static final int SHORT_WINDOW = 10;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile int limit;
+
+    /**
+     * 以下状态只在 {@link #release(long, boolean)} 的同步块内更新
+     */
+    private double estimatedLimit;
+
+    private double longRtt;
+
+    private int windows;
+
+    private double windowRttSum;
+
+    private int windowSamples;
+
+    private int windowMaxInflight;
+
+    /**
+     * @param initialLimit 初始上限，取执行器的处理能力（线程数），启动时不拒绝执行器本可以处理的请求
+     */
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 占用一个并发名额，已达上限时返回 false
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还名额，dropped 表示请求未被正常处理（如执行器拒绝、调用方取消），其耗时不作为样本
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int current = inflight.getAndDecrement();
+        if (dropped || rttNanos <= 0) {
+            return;
+        }
+        synchronized (this) {
+            windowRttSum += rttNanos;
+            windowMaxInflight = Math.max(windowMaxInflight, current);
+            if (++windowSamples < SHORT_WINDOW) {
+                return;
+            }
+            double shortRtt = windowRttSum / windowSamples;
+            int inflight = windowMaxInflight;
+            windowRttSum = 0;
+            windowSamples = 0;
+            windowMaxInflight = 0;
+            update(shortRtt, inflight);
+        }
+    }
+
+    private void update(double shortRtt, int current) {
+        if (windows < WARMUP_WINDOWS) {
+            windows++;
+            longRtt += (shortRtt - longRtt) / windows;
+        } else {
+            longRtt += (shortRtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+        // 负载下降后长期耗时偏高，逐步回落，避免上限长期不收缩
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // 并发远未达到上限时耗时样本不能说明上限是否合适
+        if (current < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        if ((int) newLimit != (int) estimatedLimit && log.isDebugEnabled()) {
+            log.debug("concurrency limit {} -> {}, inflight {}, short rtt {} us, long rtt {} us",
+                    (int) estimatedLimit, (int) newLimit, current, (long) shortRtt / 1000, (long) longRtt / 1000);
+        }
+        estimatedLimit = newLimit;
+        limit = (int) newLimit;
+    }
+}
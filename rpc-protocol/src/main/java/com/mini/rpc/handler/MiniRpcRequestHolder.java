@@ -0,0 +1,189 @@
+package com.mini.rpc.handler;
+
+import com.mini.rpc.common.MiniRpcFuture;
+import com.mini.rpc.common.MiniRpcResponse;
+import com.mini.rpc.common.RpcException;
+import com.mini.rpc.protocol.MiniRpcProtocol;
+import com.mini.rpc.protocol.MsgHeader;
+import com.mini.rpc.protocol.MsgType;
+import com.mini.rpc.protocol.ProtocolConstants;
+import com.mini.rpc.serialization.SerializationTypeEnum;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.MathUtil;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单条连接上等待响应的请求，请求 ID 由连接内的序号分配，按序号取模落入固定大小的槽位数组，
+ * 查找、移除均无需装箱，连接断开时遍历槽位即可让全部请求失败
+ */
+public class MiniRpcRequestHolder {
+
+    private static final AttributeKey<MiniRpcRequestHolder> HOLDER = AttributeKey.valueOf("rpc.requestHolder");
+
+    /**
+     * 所有请求的超时共用一个时间轮，到期时移除并以 TimeoutException 失败
+     */
+    private static final HashedWheelTimer TIMEOUT_TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("rpc-timeout", true), 10, TimeUnit.MILLISECONDS);
+
+    private final Channel channel;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicReferenceArray<MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>>> slots;
+
+    private final int mask;
+
+    private MiniRpcRequestHolder(Channel channel, int capacity) {
+        this.channel = channel;
+        int size = MathUtil.findNextPositivePowerOfTwo(Math.max(2, capacity));
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 连接创建时安装，capacity 为该连接上同时等待响应的请求上限
+     */
+    public static MiniRpcRequestHolder install(Channel channel, int capacity) {
+        MiniRpcRequestHolder holder = new MiniRpcRequestHolder(channel, capacity);
+        channel.attr(HOLDER).set(holder);
+        return holder;
+    }
+
+    public static MiniRpcRequestHolder get(Channel channel) {
+        return channel.attr(HOLDER).get();
+    }
+
+    /**
+     * 不需要等待响应的报文（如心跳）使用的请求 ID
+     */
+    public long nextRequestId() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * 在写出请求前登记并分配请求 ID，请求完成（响应、超时或断线）后自动取消超时并释放槽位
+     */
+    public long register(MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future) {
+        int index = -1;
+        long requestId = 0;
+        // 槽位被长时间未响应的请求占用时跳过该序号
+        for (int i = 0; i <= mask; i++) {
+            requestId = sequence.incrementAndGet();
+            future.setRequestId(requestId);
+            if (slots.compareAndSet((int) requestId & mask, null, future)) {
+                index = (int) requestId & mask;
+                break;
+            }
+        }
+        if (index < 0) {
+            throw new RpcException(String.format("too many pending requests on rpc connection %s", channel.remoteAddress()));
+        }
+        int slot = index;
+        Timeout timeout = TIMEOUT_TIMER.newTimeout(t -> expire(future), future.getTimeout(), TimeUnit.MILLISECONDS);
+        future.onComplete((response, cause) -> {
+            timeout.cancel();
+            slots.compareAndSet(slot, future, null);
+        });
+        // 登记前连接已断开时 failAll 可能已经执行过
+        if (!channel.isActive()) {
+            fail(requestId, closedException());
+        }
+        return requestId;
+    }
+
+    /**
+     * 取出等待该响应的请求，请求已超时或已失败时返回 null
+     */
+    public MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> remove(long requestId) {
+        int index = (int) requestId & mask;
+        MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future = slots.get(index);
+        if (future != null && future.getRequestId() == requestId && slots.compareAndSet(index, future, null)) {
+            return future;
+        }
+        return null;
+    }
+
+    /**
+     * 超时失败并通知提供者取消，响应已先到达时返回 false
+     */
+    public boolean expire(MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future) {
+        long requestId = future.getRequestId();
+        remove(requestId);
+        if (!future.tryFailure(new TimeoutException(String.format("rpc request %d timeout after %d ms", requestId, future.getTimeout())))) {
+            return false;
+        }
+        sendCancel(requestId);
+        return true;
+    }
+
+    /**
+     * 调用方主动取消，通知提供者停止处理
+     */
+    public boolean cancel(MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future) {
+        long requestId = future.getRequestId();
+        remove(requestId);
+        if (!future.tryFailure(new CancellationException(String.format("rpc request %d cancelled", requestId)))) {
+            return false;
+        }
+        sendCancel(requestId);
+        return true;
+    }
+
+    public void fail(long requestId, Throwable cause) {
+        MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future = remove(requestId);
+        if (future != null) {
+            future.tryFailure(cause);
+        }
+    }
+
+    /**
+     * 连接断开时让该连接上所有等待中的请求立即失败
+     */
+    public void failAll() {
+        RpcException cause = null;
+        for (int i = 0; i <= mask; i++) {
+            MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future = slots.getAndSet(i, null);
+            if (future != null) {
+                if (cause == null) {
+                    cause = closedException();
+                }
+                future.tryFailure(cause);
+            }
+        }
+    }
+
+    private void sendCancel(long requestId) {
+        if (!channel.isActive()) {
+            return;
+        }
+        MsgHeader header = new MsgHeader();
+        header.setMagic(ProtocolConstants.MAGIC);
+        header.setVersion(ProtocolConstants.VERSION);
+        header.setRequestId(requestId);
+        header.setSerialization((byte) SerializationTypeEnum.HESSIAN.getType());
+        header.setMsgType((byte) MsgType.CANCEL.getType());
+        MiniRpcProtocol<Object> protocol = new MiniRpcProtocol<>();
+        protocol.setHeader(header);
+        // 与请求经由同一个合并写队列，不单独 flush，也不会越过已入队的请求
+        try {
+            RpcWriteQueue.get(channel).enqueue(protocol);
+        } catch (RejectedExecutionException e) {
+            // 连接正在关闭，提供者随连接断开取消全部请求
+        }
+    }
+
+    private RpcException closedException() {
+        return new RpcException(String.format("rpc connection %s closed", channel.remoteAddress()));
+    }
+}
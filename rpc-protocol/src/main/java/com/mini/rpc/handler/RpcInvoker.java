@@ -0,0 +1,45 @@
+package com.mini.rpc.handler;
+
+import com.mini.rpc.executor.RpcExecutor;
+import lombok.Getter;
+import org.springframework.cglib.reflect.FastMethod;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * 服务方法的预绑定调用器，注册服务时创建，调用时无需再反射查找方法
+ */
+@Getter
+public class RpcInvoker {
+
+    /**
+     * 方法签名，见 {@link com.mini.rpc.common.RpcServiceHelper#buildMethodKey}
+     */
+    private final String methodKey;
+
+    private final Object serviceBean;
+
+    private final FastMethod fastMethod;
+
+    /**
+     * 响应使用的序列化类型，为 null 时沿用请求的序列化类型
+     */
+    private final Byte serialization;
+
+    /**
+     * 服务独占的执行器，为 null 时使用提供者共享的执行器
+     */
+    private final RpcExecutor executor;
+
+    public RpcInvoker(String methodKey, Object serviceBean, FastMethod fastMethod, Byte serialization, RpcExecutor executor) {
+        this.methodKey = methodKey;
+        this.serviceBean = serviceBean;
+        this.fastMethod = fastMethod;
+        this.serialization = serialization;
+        this.executor = executor;
+    }
+
+    public Object invoke(Object[] parameters) throws InvocationTargetException {
+        return fastMethod.invoke(serviceBean, parameters);
+    }
+}
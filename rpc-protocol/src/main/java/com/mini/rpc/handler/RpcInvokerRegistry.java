@@ -0,0 +1,65 @@
+package com.mini.rpc.handler;
+
+import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.executor.RpcExecutor;
+import org.springframework.cglib.reflect.FastClass;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 提供者的服务调用器注册表，按服务名 -> 方法名 -> 重载列表索引。
+ * <p>
+ * 每次注册服务都会生成新的不可变映射并整体替换，读取时只需一次 volatile 读，无需加锁。
+ */
+public class RpcInvokerRegistry {
+
+    private static final Class<?>[] NO_PARAMETER_TYPES = new Class<?>[0];
+
+    private volatile Map<String, Map<String, RpcInvoker[]>> services = Collections.emptyMap();
+
+    /**
+     * 为服务接口的每个方法预先生成调用器
+     */
+    public synchronized void register(Class<?> serviceInterface, String serviceVersion, Object serviceBean, Byte serialization, RpcExecutor executor) {
+        String serviceKey = RpcServiceHelper.buildServiceKey(serviceInterface.getName(), serviceVersion);
+        FastClass fastClass = FastClass.create(serviceBean.getClass());
+        Map<String, RpcInvoker[]> methods = new HashMap<>();
+        for (Method method : serviceInterface.getMethods()) {
+            String methodKey = RpcServiceHelper.buildMethodKey(serviceKey, method.getName(), method.getParameterTypes());
+            RpcInvoker invoker = new RpcInvoker(methodKey, serviceBean, fastClass.getMethod(method), serialization, executor);
+            RpcInvoker[] overloads = methods.get(method.getName());
+            if (overloads == null) {
+                overloads = new RpcInvoker[]{invoker};
+            } else {
+                overloads = Arrays.copyOf(overloads, overloads.length + 1);
+                overloads[overloads.length - 1] = invoker;
+            }
+            methods.put(method.getName(), overloads);
+        }
+        Map<String, Map<String, RpcInvoker[]>> newServices = new HashMap<>(services);
+        newServices.put(serviceKey, Collections.unmodifiableMap(methods));
+        services = Collections.unmodifiableMap(newServices);
+    }
+
+    public RpcInvoker get(String serviceKey, String methodName, Class<?>[] parameterTypes) {
+        Map<String, RpcInvoker[]> methods = services.get(serviceKey);
+        if (methods == null) {
+            return null;
+        }
+        RpcInvoker[] overloads = methods.get(methodName);
+        if (overloads == null) {
+            return null;
+        }
+        Class<?>[] types = parameterTypes == null ? NO_PARAMETER_TYPES : parameterTypes;
+        for (RpcInvoker invoker : overloads) {
+            if (Arrays.equals(invoker.getFastMethod().getParameterTypes(), types)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+}
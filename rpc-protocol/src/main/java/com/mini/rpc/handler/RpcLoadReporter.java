@@ -0,0 +1,103 @@
+package com.mini.rpc.handler;
+
+import com.mini.rpc.executor.RpcExecutor;
+import com.mini.rpc.protocol.LoadReport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 提供者的负载统计，所有连接共享：按 2 的幂分桶记录请求的服务耗时（微秒），
+ * 保留当前和上一个统计窗口，p99 取两个窗口合并后的桶上界。按采样间隔生成 {@link LoadReport}
+ */
+public class RpcLoadReporter {
+
+    private static final int BUCKETS = 32;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long origin = System.nanoTime();
+
+    private final AtomicLongArray[] windows = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+
+    /**
+     * 当前窗口的序号，窗口切换时清空要复用的那一组桶
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final long intervalNanos;
+
+    public RpcLoadReporter(long intervalMillis) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+    }
+
+    /**
+     * 同一连接上两次负载报告的最小间隔
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public void record(long serviceNanos) {
+        long micros = Math.max(1, serviceNanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        windows[(int) (rotate() & 1)].incrementAndGet(bucket);
+    }
+
+    /**
+     * 最近一到两个窗口内服务耗时的 p99（毫秒，向上取整），没有样本时为 0
+     */
+    public long p99Millis() {
+        rotate();
+        AtomicLongArray a = windows[0];
+        AtomicLongArray b = windows[1];
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = a.get(i) + b.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = total - total / 100;
+        for (int i = 0; i < BUCKETS; i++) {
+            rank -= counts[i];
+            if (rank <= 0) {
+                return ((1L << (i + 1)) + 999) / 1000;
+            }
+        }
+        return ((1L << BUCKETS) + 999) / 1000;
+    }
+
+    /**
+     * 生成负载报告，执行中和排队的请求数取自处理该请求的执行器
+     */
+    public int report(RpcExecutor executor) {
+        return LoadReport.encode(p99Millis(), executor.getActiveCount(), executor.getQueueSize());
+    }
+
+    private long rotate() {
+        long now = (System.nanoTime() - origin) / WINDOW_NANOS;
+        long current = epoch.get();
+        while (current < now) {
+            if (epoch.compareAndSet(current, now)) {
+                clear(windows[(int) (now & 1)]);
+                if (now - current > 1) {
+                    // 中间有空闲窗口，上一个窗口的样本已过期
+                    clear(windows[(int) ((now + 1) & 1)]);
+                }
+                return now;
+            }
+            current = epoch.get();
+        }
+        return current;
+    }
+
+    private static void clear(AtomicLongArray window) {
+        for (int i = 0; i < BUCKETS; i++) {
+            window.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.mini.rpc.handler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 单个连接上协商出的方法表。
+ * <p>
+ * 消费者首次调用某个方法时发送完整的类名、方法名、版本和参数类型，提供者在这里为其分配连接内的紧凑 ID 并随响应返回，
+ * 之后同一连接上的请求只携带该 ID，提供者按数组下标直接取出方法。
+ */
+public class RpcMethodTable<T> {
+
+    /**
+     * 单个连接最多协商的方法数，超出后不再分配 ID，消费者继续发送完整请求
+     */
+    private static final int MAX_METHODS = 4096;
+
+    private final Map<String, Integer> methodIds = new HashMap<>();
+
+    /**
+     * 下标即方法 ID，0 号位保留表示未协商；写时复制，读取无需加锁
+     */
+    private volatile Object[] methods = new Object[1];
+
+    /**
+     * 为方法分配 ID，同一方法重复注册返回相同 ID；超出上限时返回 0
+     */
+    public synchronized int register(String methodKey, T method) {
+        Integer methodId = methodIds.get(methodKey);
+        if (methodId != null) {
+            return methodId;
+        }
+        if (methods.length > MAX_METHODS) {
+            return 0;
+        }
+        Object[] newMethods = Arrays.copyOf(methods, methods.length + 1);
+        newMethods[methods.length] = method;
+        methodIds.put(methodKey, methods.length);
+        methods = newMethods;
+        return newMethods.length - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int methodId) {
+        Object[] snapshot = methods;
+        return methodId > 0 && methodId < snapshot.length ? (T) snapshot[methodId] : null;
+    }
+}
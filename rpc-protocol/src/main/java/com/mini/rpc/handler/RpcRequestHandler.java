@@ -1,66 +1,364 @@
 package com.mini.rpc.handler;
 
+import com.mini.rpc.codec.MiniRpcEncoder;
 import com.mini.rpc.common.MiniRpcRequest;
 import com.mini.rpc.common.MiniRpcResponse;
+import com.mini.rpc.common.RpcContext;
 import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.executor.RpcExecutor;
 import com.mini.rpc.protocol.MiniRpcProtocol;
 import com.mini.rpc.protocol.MsgHeader;
 import com.mini.rpc.protocol.MsgStatus;
 import com.mini.rpc.protocol.MsgType;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cglib.reflect.FastClass;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class RpcRequestHandler extends SimpleChannelInboundHandler<MiniRpcProtocol<MiniRpcRequest>> {
 
-    private final Map<String, Object> rpcServiceMap;
+    private final RpcInvokerRegistry invokerRegistry;
 
-    public RpcRequestHandler(Map<String, Object> rpcServiceMap) {
-        this.rpcServiceMap = rpcServiceMap;
+    private final MiniRpcEncoder encoder;
+
+    private final RpcWriteQueue writeQueue;
+
+    private final RpcMethodTable<RpcInvoker> methodTable = new RpcMethodTable<>();
+
+    /**
+     * 连接上尚未响应的请求，请求 ID 由消费者按连接分配，取消报文据此找到请求
+     */
+    private final Map<Long, RpcRequestTask> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * 没有独占执行器的服务共用的执行器
+     */
+    private final RpcExecutor defaultExecutor;
+
+    /**
+     * 提供者所有连接共享的并发上限，每个执行器一个，执行器没有对应的上限时不限制
+     */
+    private final Map<RpcExecutor, GradientConcurrencyLimiter> limiters;
+
+    /**
+     * 提供者所有连接共享的负载统计，为 null 时响应不携带负载报告
+     */
+    private final RpcLoadReporter loadReporter;
+
+    /**
+     * 本连接下一次允许携带负载报告的时间
+     */
+    private final AtomicLong nextLoadReport = new AtomicLong(System.nanoTime());
+
+    public RpcRequestHandler(RpcInvokerRegistry invokerRegistry, MiniRpcEncoder encoder, RpcWriteQueue writeQueue,
+                             RpcExecutor defaultExecutor, Map<RpcExecutor, GradientConcurrencyLimiter> limiters, RpcLoadReporter loadReporter) {
+        this.invokerRegistry = invokerRegistry;
+        this.encoder = encoder;
+        this.writeQueue = writeQueue;
+        this.defaultExecutor = defaultExecutor;
+        this.limiters = limiters == null ? Collections.emptyMap() : limiters;
+        this.loadReporter = loadReporter;
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, MiniRpcProtocol<MiniRpcRequest> protocol) {
-        RpcRequestProcessor.submitRequest(() -> {
-            MiniRpcProtocol<MiniRpcResponse> resProtocol = new MiniRpcProtocol<>();
-            MiniRpcResponse response = new MiniRpcResponse();
+        long requestId = protocol.getHeader().getRequestId();
+        if (protocol.getHeader().getMsgType() == (byte) MsgType.CANCEL.getType()) {
+            cancel(requestId);
+            return;
+        }
+        // 截止时间从收到请求时开始计算，排队时间也计入调用方的超时
+        int timeout = protocol.getHeader().getTimeout();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        protocol.getHeader().setTimeout(0);
+        // 已在 I/O 线程解码的请求直接交给服务的执行器，惰性解码的请求先在共享执行器上解码再转交
+        MiniRpcRequest request = protocol.getBody();
+        RpcExecutor executor = request == null ? defaultExecutor : executorOf(lookup(request));
+        GradientConcurrencyLimiter limiter = limiters.get(executor);
+        if (limiter != null && !limiter.tryAcquire()) {
+            // 超过并发上限直接在 I/O 线程上拒绝，不进入队列，消费者无需等到超时
+            protocol.release();
             MsgHeader header = protocol.getHeader();
             header.setMsgType((byte) MsgType.RESPONSE.getType());
+            header.setStatus((byte) MsgStatus.OVERLOADED.getCode());
+            MiniRpcResponse response = new MiniRpcResponse();
+            response.setMessage(overloaded(limiter));
+            header.setTimeout(sampleLoadReport(executor));
+            write(ctx, header, response);
+            return;
+        }
+        RpcRequestTask task = new RpcRequestTask(protocol, t -> process(ctx, t, timeout, deadline));
+        task.holdLimiter(limiter);
+        tasks.put(requestId, task);
+        dispatch(ctx, task, executor);
+    }
+
+    private static String overloaded(GradientConcurrencyLimiter limiter) {
+        return String.format("rpc provider overloaded, concurrency limit %d", limiter.getLimit());
+    }
+
+    /**
+     * 惰性解码后转交给服务独占的执行器前，把并发名额从共享执行器的上限换到服务执行器的上限，后者已满时返回 false
+     */
+    private boolean transferLimiter(ChannelHandlerContext ctx, RpcRequestTask task, RpcExecutor next) {
+        GradientConcurrencyLimiter limiter = limiters.get(next);
+        GradientConcurrencyLimiter held = task.takeLimiter();
+        if (held != null) {
+            held.release(0, true);
+        }
+        if (limiter == null) {
+            return true;
+        }
+        MsgHeader header = task.getProtocol().getHeader();
+        if (!limiter.tryAcquire()) {
+            task.getProtocol().release();
+            header.setStatus((byte) MsgStatus.OVERLOADED.getCode());
+            MiniRpcResponse response = new MiniRpcResponse();
+            response.setMessage(overloaded(limiter));
+            respond(ctx, task, header, response);
+            return false;
+        }
+        task.holdLimiter(limiter);
+        // 期间已被取消或响应的请求由本方归还名额
+        if (tasks.get(header.getRequestId()) != task) {
+            release(task, true);
+        }
+        return true;
+    }
+
+    private void dispatch(ChannelHandlerContext ctx, RpcRequestTask task, RpcExecutor executor) {
+        task.setExecutor(executor);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            MsgHeader header = task.getProtocol().getHeader();
+            task.getProtocol().release();
+            header.setMsgType((byte) MsgType.RESPONSE.getType());
+            header.setStatus((byte) MsgStatus.OVERLOADED.getCode());
+            MiniRpcResponse response = new MiniRpcResponse();
+            response.setMessage(String.format("rpc request %d rejected by executor: %s", header.getRequestId(), e.getMessage()));
+            respond(ctx, task, header, response);
+        }
+    }
+
+    private RpcExecutor executorOf(RpcInvoker invoker) {
+        return invoker == null || invoker.getExecutor() == null ? defaultExecutor : invoker.getExecutor();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 消费者已断开，未完成的请求都不再需要
+        for (Long requestId : tasks.keySet()) {
+            cancel(requestId);
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 排队中的请求直接移出队列，执行中的请求中断执行线程并取消异步结果，已取消的请求不再写出响应
+     */
+    private void cancel(long requestId) {
+        RpcRequestTask task = tasks.remove(requestId);
+        if (task == null) {
+            return;
+        }
+        release(task, true);
+        task.cancel();
+        if (task.getExecutor().remove(task)) {
+            task.getProtocol().release();
+        }
+    }
+
+    private void process(ChannelHandlerContext ctx, RpcRequestTask task, int timeout, long deadline) {
+        MiniRpcProtocol<MiniRpcRequest> protocol = task.getProtocol();
+        if (!task.begin()) {
+            protocol.release();
+            return;
+        }
+        RpcExecutor next;
+        try {
+            next = process(ctx, task, protocol, timeout, deadline);
+        } finally {
+            task.end();
+        }
+        if (next != null && transferLimiter(ctx, task, next)) {
+            dispatch(ctx, task, next);
+        }
+    }
+
+    /**
+     * 返回需要转交的执行器，请求已在本执行器上处理完时返回 null
+     */
+    private RpcExecutor process(ChannelHandlerContext ctx, RpcRequestTask task, MiniRpcProtocol<MiniRpcRequest> protocol, int timeout, long deadline) {
+        MiniRpcResponse response = new MiniRpcResponse();
+        MsgHeader header = protocol.getHeader();
+        header.setMsgType((byte) MsgType.RESPONSE.getType());
+        boolean hasDeadline = timeout > 0;
+        if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            // 调用方已经放弃，不再解码和执行
+            protocol.release();
+            header.setStatus((byte) MsgStatus.DEADLINE_EXCEEDED.getCode());
+            response.setMessage(String.format("rpc request %d deadline exceeded after %d ms in queue", header.getRequestId(), timeout));
+            respond(ctx, task, header, response);
+            return null;
+        }
+        if (hasDeadline) {
+            RpcContext.setDeadline(deadline);
+        }
+        try {
+            MiniRpcRequest request = protocol.decodeBody(MiniRpcRequest.class);
+            RpcInvoker invoker = resolve(request, response);
+            RpcExecutor executor = executorOf(invoker);
+            if (executor != task.getExecutor()) {
+                // 惰性解码后才确定服务，转交给服务独占的执行器重新执行
+                return executor;
+            }
+            if (invoker.getSerialization() != null) {
+                header.setSerialization(invoker.getSerialization());
+            }
+            Object result = invoker.invoke(request.getParams());
+            if (result instanceof CompletionStage) {
+                // 异步服务方法，结果完成时再响应，不占用业务线程等待
+                CompletionStage<?> stage = (CompletionStage<?>) result;
+                task.attach(stage);
+                stage.whenComplete((data, throwable) -> {
+                    if (throwable != null) {
+                        fail(header, response, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                    } else {
+                        response.setData(data);
+                        header.setStatus((byte) MsgStatus.SUCCESS.getCode());
+                    }
+                    respond(ctx, task, header, response);
+                });
+                return null;
+            }
+            response.setData(result);
+
+            header.setStatus((byte) MsgStatus.SUCCESS.getCode());
+        } catch (Throwable throwable) {
+            fail(header, response, throwable);
+        } finally {
+            RpcContext.clear();
+        }
+        respond(ctx, task, header, response);
+        return null;
+    }
+
+    private void fail(MsgHeader header, MiniRpcResponse response, Throwable throwable) {
+        header.setStatus((byte) MsgStatus.FAIL.getCode());
+        response.setMessage(throwable.toString());
+        log.error("process request {} error", header.getRequestId(), throwable);
+    }
+
+    private void respond(ChannelHandlerContext ctx, RpcRequestTask task, MsgHeader header, MiniRpcResponse response) {
+        // 与取消竞争，已被取消的请求不写出响应
+        if (!tasks.remove(header.getRequestId(), task)) {
+            return;
+        }
+        boolean dropped = header.getStatus() == (byte) MsgStatus.OVERLOADED.getCode();
+        release(task, dropped);
+        if (loadReporter != null) {
+            if (!dropped && header.getStatus() != (byte) MsgStatus.DEADLINE_EXCEEDED.getCode()) {
+                loadReporter.record(System.nanoTime() - task.getStartNanos());
+            }
+            header.setTimeout(sampleLoadReport(task.getExecutor()));
+        }
+        write(ctx, header, response);
+    }
+
+    /**
+     * 距本连接上次报告超过采样间隔时返回负载报告，否则返回 0（不携带）
+     */
+    private int sampleLoadReport(RpcExecutor executor) {
+        if (loadReporter == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long next = nextLoadReport.get();
+        if (now - next < 0 || !nextLoadReport.compareAndSet(next, now + loadReporter.getIntervalNanos())) {
+            return 0;
+        }
+        return loadReporter.report(executor);
+    }
+
+    /**
+     * 请求结束时归还并发名额，被拒绝或取消的请求不计入耗时样本
+     */
+    private void release(RpcRequestTask task, boolean dropped) {
+        GradientConcurrencyLimiter limiter = task.takeLimiter();
+        if (limiter != null) {
+            limiter.release(System.nanoTime() - task.getStartNanos(), dropped);
+        }
+    }
+
+    private void write(ChannelHandlerContext ctx, MsgHeader header, MiniRpcResponse response) {
+        MiniRpcProtocol<MiniRpcResponse> resProtocol = new MiniRpcProtocol<>();
+        resProtocol.setHeader(header);
+        resProtocol.setBody(response);
+        // 在业务线程上完成序列化和压缩
+        ByteBuf frame;
+        try {
+            frame = encoder.encode(ctx.alloc(), resProtocol);
+        } catch (Throwable throwable) {
+            log.error("encode response {} error", header.getRequestId(), throwable);
+            header.setStatus((byte) MsgStatus.FAIL.getCode());
+            response.setData(null);
+            response.setMessage(throwable.toString());
             try {
-                Object result = handle(protocol.getBody());
-                response.setData(result);
-
-                header.setStatus((byte) MsgStatus.SUCCESS.getCode());
-                resProtocol.setHeader(header);
-                resProtocol.setBody(response);
-            } catch (Throwable throwable) {
-                header.setStatus((byte) MsgStatus.FAIL.getCode());
-                response.setMessage(throwable.toString());
-                log.error("process request {} error", header.getRequestId(), throwable);
+                frame = encoder.encode(ctx.alloc(), resProtocol);
+            } catch (Throwable e) {
+                log.error("encode error response {} error", header.getRequestId(), e);
+                return;
             }
-            ctx.writeAndFlush(resProtocol);
-        });
+        }
+        try {
+            writeQueue.enqueue(frame);
+        } catch (RejectedExecutionException e) {
+            log.warn("event loop rejected response {}, channel {}", header.getRequestId(), ctx.channel());
+        }
     }
 
-    private Object handle(MiniRpcRequest request) throws Throwable {
+    /**
+     * 只查找调用器，不分配方法 ID
+     */
+    private RpcInvoker lookup(MiniRpcRequest request) {
+        if (request.getMethodId() > 0) {
+            return methodTable.get(request.getMethodId());
+        }
         String serviceKey = RpcServiceHelper.buildServiceKey(request.getClassName(), request.getServiceVersion());
-        Object serviceBean = rpcServiceMap.get(serviceKey);
+        return invokerRegistry.get(serviceKey, request.getMethodName(), request.getParameterTypes());
+    }
 
-        if (serviceBean == null) {
-            throw new RuntimeException(String.format("service not exist: %s:%s", request.getClassName(), request.getMethodName()));
+    /**
+     * 已协商的请求按方法 ID 直接取出调用器；完整请求在注册表中查找调用器后分配 ID，并通过响应告知消费者
+     */
+    private RpcInvoker resolve(MiniRpcRequest request, MiniRpcResponse response) {
+        if (request.getMethodId() > 0) {
+            RpcInvoker invoker = methodTable.get(request.getMethodId());
+            if (invoker == null) {
+                throw new RuntimeException(String.format("method id not negotiated: %d", request.getMethodId()));
+            }
+            return invoker;
         }
 
-        Class<?> serviceClass = serviceBean.getClass();
-        String methodName = request.getMethodName();
-        Class<?>[] parameterTypes = request.getParameterTypes();
-        Object[] parameters = request.getParams();
+        String serviceKey = RpcServiceHelper.buildServiceKey(request.getClassName(), request.getServiceVersion());
+        RpcInvoker invoker = invokerRegistry.get(serviceKey, request.getMethodName(), request.getParameterTypes());
+
+        if (invoker == null) {
+            throw new RuntimeException(String.format("service not exist: %s:%s", request.getClassName(), request.getMethodName()));
+        }
 
-        FastClass fastClass = FastClass.create(serviceClass);
-        int methodIndex = fastClass.getIndex(methodName, parameterTypes);
-        return fastClass.invoke(methodIndex, serviceBean, parameters);
+        response.setMethodId(methodTable.register(invoker.getMethodKey(), invoker));
+        return invoker;
     }
 }
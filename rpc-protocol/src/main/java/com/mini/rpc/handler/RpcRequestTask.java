@@ -0,0 +1,107 @@
+package com.mini.rpc.handler;
+
+import com.mini.rpc.common.MiniRpcRequest;
+import com.mini.rpc.protocol.MiniRpcProtocol;
+import com.mini.rpc.executor.RpcExecutor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * 提供者处理中的单个请求的执行状态，消费者取消时据此中断执行线程或取消异步结果
+ */
+class RpcRequestTask implements Runnable {
+
+    @Getter
+    private final MiniRpcProtocol<MiniRpcRequest> protocol;
+
+    private final Consumer<RpcRequestTask> action;
+
+    /**
+     * 收到请求的时间，响应时据此计算提供者侧耗时
+     */
+    @Getter
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * 当前提交到的执行器，取消时从其队列中移除
+     */
+    @Getter
+    @Setter
+    private volatile RpcExecutor executor;
+
+    /**
+     * 请求占用名额的并发上限，归还时取出并清空，保证只归还一次
+     */
+    private GradientConcurrencyLimiter limiter;
+
+    private boolean cancelled;
+
+    private Thread runner;
+
+    private Future<?> stage;
+
+    RpcRequestTask(MiniRpcProtocol<MiniRpcRequest> protocol, Consumer<RpcRequestTask> action) {
+        this.protocol = protocol;
+        this.action = action;
+    }
+
+    @Override
+    public void run() {
+        action.accept(this);
+    }
+
+    /**
+     * 开始执行，已取消时返回 false
+     */
+    synchronized boolean begin() {
+        if (cancelled) {
+            return false;
+        }
+        runner = Thread.currentThread();
+        return true;
+    }
+
+    /**
+     * 执行结束，清除取消时可能留下的中断标记，避免影响线程池中的下一个请求
+     */
+    synchronized void end() {
+        runner = null;
+        Thread.interrupted();
+    }
+
+    /**
+     * 业务方法返回的异步结果，取消时一并取消
+     */
+    synchronized void attach(CompletionStage<?> result) {
+        if (result instanceof Future) {
+            stage = (Future<?>) result;
+            if (cancelled) {
+                stage.cancel(true);
+            }
+        }
+    }
+
+    synchronized void holdLimiter(GradientConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    synchronized GradientConcurrencyLimiter takeLimiter() {
+        GradientConcurrencyLimiter held = limiter;
+        limiter = null;
+        return held;
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (runner != null) {
+            runner.interrupt();
+        }
+        if (stage != null) {
+            stage.cancel(true);
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.mini.rpc.handler;
 
 
 import com.mini.rpc.common.MiniRpcFuture;
-import com.mini.rpc.common.MiniRpcRequestHolder;
 import com.mini.rpc.common.MiniRpcResponse;
 import com.mini.rpc.protocol.MiniRpcProtocol;
 import io.netty.channel.ChannelHandlerContext;
@@ -13,8 +12,16 @@ public class RpcResponseHandler extends SimpleChannelInboundHandler<MiniRpcProto
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, MiniRpcProtocol<MiniRpcResponse> msg) {
         long requestId = msg.getHeader().getRequestId();
-        MiniRpcFuture<MiniRpcResponse> future = MiniRpcRequestHolder.REQUEST_MAP.remove(requestId);
-        future.getPromise().setSuccess(msg.getBody());
+        MiniRpcFuture<MiniRpcProtocol<MiniRpcResponse>> future = MiniRpcRequestHolder.get(ctx.channel()).remove(requestId);
+        // 调用方已超时放弃，丢弃响应
+        if (future == null || !future.trySuccess(msg)) {
+            msg.release();
+        }
     }
-}
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        MiniRpcRequestHolder.get(ctx.channel()).failAll();
+        super.channelInactive(ctx);
+    }
+}
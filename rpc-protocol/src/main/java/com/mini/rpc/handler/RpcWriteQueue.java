@@ -0,0 +1,122 @@
+package com.mini.rpc.handler;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个连接的合并写队列。
+ * <p>
+ * 业务线程只把编码好的报文放入无锁队列，由 I/O 线程批量 write 后统一 flush，
+ * 避免每条消息一次跨线程任务提交和一次 flush 系统调用。
+ */
+public class RpcWriteQueue implements Runnable {
+
+    private static final AttributeKey<RpcWriteQueue> WRITE_QUEUE = AttributeKey.valueOf("rpc.writeQueue");
+
+    private final Channel channel;
+
+    /**
+     * 每批最多写出的消息数，写满即 flush，剩余消息另起一轮，避免长时间占用 I/O 线程
+     */
+    private final int maxBatch;
+
+    /**
+     * 首条消息入队后最多等待多久再 flush，用于攒批；为 0 时 I/O 线程空闲即刻写出
+     */
+    private final long maxDelayNanos;
+
+    private final Queue<Object> queue = PlatformDependent.newMpscQueue();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public RpcWriteQueue(Channel channel, int maxBatch, long maxDelayMicros) {
+        this.channel = channel;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxDelayMicros));
+    }
+
+    /**
+     * I/O 线程拒绝写任务（如正在关闭）时，队列中的报文已被释放、连接上等待中的请求已失败，并抛出 RejectedExecutionException
+     */
+    /**
+     * 连接创建时安装，连接上的请求、取消等报文都经由该队列写出，保持顺序并合并 flush
+     */
+    public static RpcWriteQueue install(Channel channel, int maxBatch, long maxDelayMicros) {
+        RpcWriteQueue writeQueue = new RpcWriteQueue(channel, maxBatch, maxDelayMicros);
+        channel.attr(WRITE_QUEUE).set(writeQueue);
+        return writeQueue;
+    }
+
+    public static RpcWriteQueue get(Channel channel) {
+        return channel.attr(WRITE_QUEUE).get();
+    }
+
+    public void enqueue(Object msg) {
+        queue.add(msg);
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                if (maxDelayNanos > 0) {
+                    channel.eventLoop().schedule(this, maxDelayNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    channel.eventLoop().execute(this);
+                }
+            } catch (RejectedExecutionException e) {
+                rejected();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!channel.isActive()) {
+            releaseAll();
+        } else {
+            int written = 0;
+            Object msg;
+            while (written < maxBatch && (msg = queue.poll()) != null) {
+                channel.write(msg, channel.voidPromise());
+                written++;
+            }
+            if (written > 0) {
+                channel.flush();
+            }
+        }
+        scheduled.set(false);
+        // 本轮写满或期间有新消息入队，立即再排一轮
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                channel.eventLoop().execute(this);
+            } catch (RejectedExecutionException e) {
+                rejected();
+            }
+        }
+    }
+
+    /**
+     * 写任务无法提交时释放已入队的报文，并让该连接上等待中的请求立即失败，不必等到超时
+     */
+    private void rejected() {
+        // 先复位再清空，之后入队的消息会重新尝试提交并各自处理拒绝
+        scheduled.set(false);
+        releaseAll();
+        MiniRpcRequestHolder requestHolder = MiniRpcRequestHolder.get(channel);
+        if (requestHolder != null) {
+            requestHolder.failAll();
+        }
+    }
+
+    private void releaseAll() {
+        Object msg;
+        while ((msg = queue.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mini.rpc.protocol;
+
+/**
+ * 提供者负载报告，按采样间隔放在响应报文头的超时字段中（响应不使用该字段），不增加报文长度
+ * <pre>
+ * | 有效标志 1bit | 近期 p99 耗时毫秒 11bit | 执行中请求数 10bit | 排队请求数 10bit |
+ * </pre>
+ * 各项超过字段上限时取上限
+ */
+public final class LoadReport {
+
+    private static final int PRESENT = 1 << 31;
+    private static final int P99_MAX = (1 << 11) - 1;
+    private static final int COUNT_MAX = (1 << 10) - 1;
+
+    private LoadReport() {
+    }
+
+    public static int encode(long p99Millis, int active, int queueSize) {
+        return PRESENT
+                | (int) Math.min(Math.max(p99Millis, 0), P99_MAX) << 20
+                | Math.min(Math.max(active, 0), COUNT_MAX) << 10
+                | Math.min(Math.max(queueSize, 0), COUNT_MAX);
+    }
+
+    public static boolean isPresent(int report) {
+        return (report & PRESENT) != 0;
+    }
+
+    public static int p99Millis(int report) {
+        return report >>> 20 & P99_MAX;
+    }
+
+    public static int active(int report) {
+        return report >>> 10 & COUNT_MAX;
+    }
+
+    public static int queueSize(int report) {
+        return report & COUNT_MAX;
+    }
+}
@@ -1,11 +1,71 @@
 package com.mini.rpc.protocol;
 
+import com.mini.rpc.compress.CompressionFactory;
+import com.mini.rpc.serialization.SerializationException;
+import com.mini.rpc.serialization.SerializationFactory;
+import io.netty.buffer.ByteBuf;
 import lombok.Data;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 @Data
 public class MiniRpcProtocol<T> implements Serializable {
     private MsgHeader header;
     private T body;
+
+    /**
+     * 尚未反序列化的数据内容切片，由 {@link #decodeBody(Class)} 解压、反序列化后释放
+     */
+    private transient ByteBuf payload;
+
+    /**
+     * 解码失败的原因，payload 已释放，之后每次 decodeBody 都抛出同一个异常
+     */
+    private transient RuntimeException decodeFailure;
+
+    /**
+     * 解压后数据内容的长度上限，由解码器按配置设置
+     */
+    private transient int maxBodySize = ProtocolConstants.DEFAULT_MAX_BODY_SIZE;
+
+    /**
+     * 返回报文体，尚未反序列化时先从 payload 解压、解码并释放切片；解码失败时抛出 SerializationException 等异常
+     */
+    public synchronized T decodeBody(Class<T> bodyClass) {
+        if (decodeFailure != null) {
+            throw decodeFailure;
+        }
+        if (payload != null) {
+            ByteBuf data = payload;
+            try {
+                if ((header.getCompression() & ProtocolConstants.COMPRESSED_FLAG) != 0) {
+                    data = CompressionFactory.getRpcCompression(header.getCompression()).decompress(payload, payload.alloc(), maxBodySize);
+                }
+                body = SerializationFactory.getRpcSerialization(header.getSerialization()).deserialize(data, bodyClass);
+            } catch (IOException e) {
+                decodeFailure = new SerializationException(e);
+                throw decodeFailure;
+            } catch (RuntimeException e) {
+                decodeFailure = e;
+                throw e;
+            } finally {
+                if (data != payload) {
+                    data.release();
+                }
+                release();
+            }
+        }
+        return body;
+    }
+
+    /**
+     * 丢弃报文时释放尚未解码的 payload
+     */
+    public synchronized void release() {
+        if (payload != null) {
+            payload.release();
+            payload = null;
+        }
+    }
 }
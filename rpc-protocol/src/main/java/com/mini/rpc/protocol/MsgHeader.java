@@ -10,15 +10,17 @@ public class MsgHeader implements Serializable {
     +---------------------------------------------------------------+
     | 魔数 2byte | 协议版本号 1byte | 序列化算法 1byte | 报文类型 1byte  |
     +---------------------------------------------------------------+
-    | 状态 1byte |        消息 ID 8byte     |      数据长度 4byte     |
+    | 状态 1byte |        消息 ID 8byte     | 剩余超时/负载报告 4byte | 数据长度 4byte |
     +---------------------------------------------------------------+
     */
 
     private short magic; // 魔数
     private byte version; // 协议版本号
     private byte serialization; // 序列化算法
+    private byte compression; // 压缩算法及已压缩标志，与序列化算法共用一个字节
     private byte msgType; // 报文类型
     private byte status; // 状态
     private long requestId; // 消息 ID
+    private int timeout; // 请求的剩余超时时间，毫秒，0 表示不限；响应中为提供者负载报告，见 LoadReport
     private int msgLen; // 数据长度
 }
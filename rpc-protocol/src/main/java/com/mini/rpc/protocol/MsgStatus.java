@@ -4,7 +4,15 @@ import lombok.Getter;
 
 public enum MsgStatus {
     SUCCESS(0),
-    FAIL(1);
+    FAIL(1),
+    /**
+     * 请求在提供者排队期间已超过调用方的截止时间，未执行
+     */
+    DEADLINE_EXCEEDED(2),
+    /**
+     * 提供者并发已达上限，请求未执行即被拒绝，消费者可立即改投其他提供者
+     */
+    OVERLOADED(3);
 
     @Getter
     private final int code;
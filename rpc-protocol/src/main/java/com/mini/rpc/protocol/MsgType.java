@@ -5,7 +5,11 @@ import lombok.Getter;
 public enum MsgType {
     REQUEST(1),
     RESPONSE(2),
-    HEARTBEAT(3);
+    HEARTBEAT(3),
+    /**
+     * 消费者放弃等待（超时或取消）后通知提供者停止处理，只有报文头，消息 ID 为被取消的请求
+     */
+    CANCEL(4);
 
     @Getter
     private final int type;
@@ -1,11 +1,29 @@
 package com.mini.rpc.protocol;
 
 public class ProtocolConstants {
-    public static final int HEADER_TOTAL_LEN = 18;
+    public static final int HEADER_TOTAL_LEN = 22;
 
     public static final short MAGIC = 0x10;
 
-    public static final byte VERSION = 0x1;
+    /**
+     * 协议版本号，报文头格式变化时递增；版本 2 在消息 ID 之后加入 4 字节的剩余超时/负载报告，报文头由 18 字节变为 22 字节，
+     * 解码器拒绝其他版本的报文并关闭连接
+     */
+    public static final byte VERSION = 0x2;
+
+    /**
+     * 序列化算法字节的高 4 位为序列化类型，低 3 位为消费者接受的压缩算法，第 4 位标记数据内容已压缩
+     */
+    public static final int SERIALIZATION_MASK = 0xF0;
+
+    public static final int COMPRESSION_MASK = 0x07;
+
+    public static final int COMPRESSED_FLAG = 0x08;
+
+    /**
+     * 数据内容（压缩前后）的默认长度上限
+     */
+    public static final int DEFAULT_MAX_BODY_SIZE = 16 * 1024 * 1024;
 
     public static final String PING = "ping";
 
@@ -2,51 +2,111 @@ package com.mini.rpc.serialization;
 
 import com.caucho.hessian.io.HessianSerializerInput;
 import com.caucho.hessian.io.HessianSerializerOutput;
+import com.caucho.hessian.io.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 @Component
 @Slf4j
 public class HessianSerialization implements RpcSerialization {
 
+    /**
+     * 全局共享 SerializerFactory，保留 Hessian 按类缓存的序列化器
+     */
+    private static final SerializerFactory SERIALIZER_FACTORY = new SerializerFactory();
+
+    /**
+     * 复用的字节缓冲超过该大小后不再缓存，避免偶发大报文长期占用内存
+     */
+    private static final int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<HessianSerializerOutput> OUTPUT = ThreadLocal.withInitial(() -> {
+        HessianSerializerOutput output = new HessianSerializerOutput();
+        output.setSerializerFactory(SERIALIZER_FACTORY);
+        return output;
+    });
+
+    private static final ThreadLocal<HessianSerializerInput> INPUT = ThreadLocal.withInitial(() -> {
+        HessianSerializerInput input = new HessianSerializerInput();
+        input.setSerializerFactory(SERIALIZER_FACTORY);
+        return input;
+    });
+
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFER = ThreadLocal.withInitial(ByteArrayOutputStream::new);
+
     @Override
     public <T> byte[] serialize(T object) {
         if (object == null) {
             throw new NullPointerException();
         }
-        byte[] results;
-
-        HessianSerializerOutput hessianOutput;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            hessianOutput = new HessianSerializerOutput(os);
-            hessianOutput.writeObject(object);
-            hessianOutput.flush();
-            results = os.toByteArray();
-        } catch (Exception e) {
-            throw new SerializationException(e);
+        ByteArrayOutputStream os = BUFFER.get();
+        try {
+            writeObject(object, os);
+            return os.toByteArray();
+        } finally {
+            if (os.size() > MAX_CACHED_BUFFER_SIZE) {
+                BUFFER.remove();
+            } else {
+                os.reset();
+            }
         }
+    }
 
-        return results;
+    @Override
+    public <T> void serialize(T object, ByteBuf out) {
+        if (object == null) {
+            throw new NullPointerException();
+        }
+        writeObject(object, new ByteBufOutputStream(out));
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clz) {
         if (bytes == null) {
             throw new NullPointerException();
         }
-        T result;
+        return readObject(new ByteArrayInputStream(bytes), clz);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clz) {
+        if (in == null) {
+            throw new NullPointerException();
+        }
+        return readObject(new ByteBufInputStream(in), clz);
+    }
 
-        try (ByteArrayInputStream is = new ByteArrayInputStream(bytes)) {
-            HessianSerializerInput hessianInput = new HessianSerializerInput(is);
-            result = (T) hessianInput.readObject(clz);
+    private void writeObject(Object object, OutputStream os) {
+        HessianSerializerOutput hessianOutput = OUTPUT.get();
+        try {
+            hessianOutput.init(os);
+            hessianOutput.writeObject(object);
+            hessianOutput.flush();
         } catch (Exception e) {
             throw new SerializationException(e);
+        } finally {
+            hessianOutput.init(null);
         }
+    }
 
-        return result;
+    @SuppressWarnings("unchecked")
+    private <T> T readObject(InputStream is, Class<T> clz) {
+        HessianSerializerInput hessianInput = INPUT.get();
+        try {
+            hessianInput.init(is);
+            return (T) hessianInput.readObject(clz);
+        } catch (Exception e) {
+            throw new SerializationException(e);
+        } finally {
+            hessianInput.init(null);
+        }
     }
 }
@@ -22,8 +22,13 @@ package com.mini.rpc.serialization;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -52,8 +57,26 @@ public class JsonSerialization implements RpcSerialization {
         return obj instanceof String ? ((String) obj).getBytes() : MAPPER.writeValueAsString(obj).getBytes(StandardCharsets.UTF_8);
     }
 
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) throws IOException {
+        if (obj instanceof String) {
+            out.writeBytes(((String) obj).getBytes());
+            return;
+        }
+        try (OutputStream os = new ByteBufOutputStream(out)) {
+            MAPPER.writeValue(os, obj);
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] data, Class<T> clz) throws IOException {
         return MAPPER.readValue(data, clz);
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clz) throws IOException {
+        try (InputStream is = new ByteBufInputStream(in)) {
+            return MAPPER.readValue(is, clz);
+        }
+    }
 }
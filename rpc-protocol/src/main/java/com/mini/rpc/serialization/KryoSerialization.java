@@ -0,0 +1,297 @@
+package com.mini.rpc.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import com.mini.rpc.common.MiniRpcRequest;
+import com.mini.rpc.common.MiniRpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 基于 Kryo 的二进制序列化。
+ * <p>
+ * 协议类和常用 JDK 类型使用固定 ID 注册；服务接口中的 DTO 类通过 {@link #registerServiceInterface(Class)}
+ * 注册，ID 由类名哈希得出，与注册顺序无关，因此消费者和提供者各自注册也能得到一致的 ID，类名不再上线路。
+ * 只允许序列化已注册的类，对端无法在数据中指定任意类名；方法签名推导不出的类型（如返回值声明为父类时的子类）
+ * 需要两端都调用 {@link #register(Class)}
+ */
+@Slf4j
+public class KryoSerialization implements RpcSerialization {
+
+    /**
+     * DTO 类 ID 的起始值，固定注册的类 ID 必须小于该值
+     */
+    private static final int DTO_ID_BASE = 1000;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * 输出缓冲扩容超过该大小后不再放回池中，避免偶发大报文长期占用内存
+     */
+    private static final int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+
+    private static final int POOL_SIZE = 64;
+
+    private static final List<Class<?>> FIXED_CLASSES = Arrays.asList(
+            MiniRpcRequest.class, MiniRpcResponse.class,
+            Object.class, Object[].class, Class.class, Class[].class, String[].class,
+            int[].class, long[].class, byte[].class, double[].class, boolean[].class,
+            ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class,
+            HashSet.class, LinkedHashSet.class, TreeSet.class, ConcurrentHashMap.class,
+            Date.class, BigDecimal.class, BigInteger.class,
+            Arrays.asList().getClass(), Collections.emptyList().getClass(), Collections.emptySet().getClass(),
+            Collections.emptyMap().getClass(), Collections.singletonList(null).getClass(),
+            Collections.singleton(null).getClass(), Collections.singletonMap(null, null).getClass(),
+            UUID.class, LocalDate.class, LocalDateTime.class, LocalTime.class, Instant.class, Duration.class);
+
+    /**
+     * 只用于判断类是否已有内置或固定注册，不参与序列化
+     */
+    private static final Kryo TEMPLATE = newKryo();
+
+    /**
+     * 已注册的 DTO 类，按注册顺序追加；池中的 Kryo 实例借出时补齐尚未注册的部分
+     */
+    private static final List<Class<?>> DTO_CLASSES = new CopyOnWriteArrayList<>();
+
+    private static final Map<Integer, Class<?>> DTO_IDS = new ConcurrentHashMap<>();
+
+    private static final Pool<KryoHolder> KRYO_POOL = new Pool<KryoHolder>(true, false, POOL_SIZE) {
+        @Override
+        protected KryoHolder create() {
+            return new KryoHolder(newKryo());
+        }
+    };
+
+    private static final Pool<Output> OUTPUT_POOL = new Pool<Output>(true, false, POOL_SIZE) {
+        @Override
+        protected Output create() {
+            return new Output(BUFFER_SIZE, -1);
+        }
+    };
+
+    private static final Pool<Input> INPUT_POOL = new Pool<Input>(true, false, POOL_SIZE) {
+        @Override
+        protected Input create() {
+            return new Input(BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * 注册服务接口方法签名中出现的 DTO 类（参数、返回值、泛型参数及其字段类型），JDK 自带类型除外；
+     * 请求中的参数类型以 Class 对象上线路，声明的参数类型（包括接口）也一并注册。消费者和提供者都应在首次调用前注册
+     */
+    public static void registerServiceInterface(Class<?> serviceInterface) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (Method method : serviceInterface.getMethods()) {
+            collectClasses(method.getGenericReturnType(), classes);
+            for (Type parameterType : method.getGenericParameterTypes()) {
+                collectClasses(parameterType, classes);
+            }
+            Collections.addAll(classes, method.getParameterTypes());
+        }
+        classes.forEach(KryoSerialization::register);
+    }
+
+    /**
+     * ID 与已注册的其他类冲突时立即失败，需要调整类名
+     */
+    public static synchronized void register(Class<?> clazz) {
+        if (DTO_CLASSES.contains(clazz) || TEMPLATE.getClassResolver().getRegistration(clazz) != null) {
+            return;
+        }
+        int id = dtoId(clazz);
+        Class<?> exist = DTO_IDS.putIfAbsent(id, clazz);
+        if (exist != null) {
+            throw new SerializationException(String.format("kryo registration id conflict: %s and %s", exist.getName(), clazz.getName()));
+        }
+        DTO_CLASSES.add(clazz);
+        log.debug("kryo registered {} with id {}", clazz.getName(), id);
+    }
+
+    @Override
+    public <T> byte[] serialize(T obj) {
+        Output output = OUTPUT_POOL.obtain();
+        try {
+            writeObject(obj, output);
+            return output.toBytes();
+        } finally {
+            if (output.getBuffer().length <= MAX_CACHED_BUFFER_SIZE) {
+                output.reset();
+                OUTPUT_POOL.free(output);
+            }
+        }
+    }
+
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) {
+        Output output = OUTPUT_POOL.obtain();
+        try {
+            output.setOutputStream(new ByteBufOutputStream(out));
+            writeObject(obj, output);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+            OUTPUT_POOL.free(output);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> clz) {
+        if (data == null) {
+            throw new NullPointerException();
+        }
+        return readObject(new Input(data), clz);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clz) {
+        if (in == null) {
+            throw new NullPointerException();
+        }
+        Input input = INPUT_POOL.obtain();
+        try {
+            input.setInputStream(new ByteBufInputStream(in));
+            return readObject(input, clz);
+        } finally {
+            input.setInputStream(null);
+            INPUT_POOL.free(input);
+        }
+    }
+
+    private void writeObject(Object obj, Output output) {
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+        KryoHolder holder = obtainKryo();
+        try {
+            holder.kryo.writeClassAndObject(output, obj);
+        } catch (Exception e) {
+            throw new SerializationException(e);
+        } finally {
+            KRYO_POOL.free(holder);
+        }
+    }
+
+    private <T> T readObject(Input input, Class<T> clz) {
+        KryoHolder holder = obtainKryo();
+        try {
+            return clz.cast(holder.kryo.readClassAndObject(input));
+        } catch (Exception e) {
+            throw new SerializationException(e);
+        } finally {
+            KRYO_POOL.free(holder);
+        }
+    }
+
+    private static KryoHolder obtainKryo() {
+        KryoHolder holder = KRYO_POOL.obtain();
+        while (holder.registered < DTO_CLASSES.size()) {
+            Class<?> clazz = DTO_CLASSES.get(holder.registered++);
+            holder.kryo.register(clazz, dtoId(clazz));
+        }
+        return holder;
+    }
+
+    private static Kryo newKryo() {
+        Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(true);
+        kryo.setReferences(true);
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        int id = kryo.getNextRegistrationId();
+        for (Class<?> clazz : FIXED_CLASSES) {
+            Registration registration = kryo.register(clazz, id++);
+            if (registration.getId() >= DTO_ID_BASE) {
+                throw new IllegalStateException("too many fixed kryo registrations");
+            }
+        }
+        return kryo;
+    }
+
+    private static int dtoId(Class<?> clazz) {
+        return DTO_ID_BASE + (clazz.getName().hashCode() & 0x0FFFFFFF);
+    }
+
+    private static void collectClasses(Type type, Set<Class<?>> classes) {
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            collectClasses(parameterizedType.getRawType(), classes);
+            for (Type argument : parameterizedType.getActualTypeArguments()) {
+                collectClasses(argument, classes);
+            }
+        } else if (type instanceof GenericArrayType) {
+            collectClasses(((GenericArrayType) type).getGenericComponentType(), classes);
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                collectClasses(bound, classes);
+            }
+        } else if (type instanceof TypeVariable) {
+            for (Type bound : ((TypeVariable<?>) type).getBounds()) {
+                collectClasses(bound, classes);
+            }
+        } else if (type instanceof Class) {
+            Class<?> clazz = (Class<?>) type;
+            if (clazz.isArray()) {
+                collectClasses(clazz.getComponentType(), classes);
+                if (isDtoClass(clazz.getComponentType())) {
+                    classes.add(clazz);
+                }
+                return;
+            }
+            if (!isDtoClass(clazz) || !classes.add(clazz)) {
+                return;
+            }
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        collectClasses(field.getGenericType(), classes);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isDtoClass(Class<?> clazz) {
+        if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isAnnotation()) {
+            return false;
+        }
+        String name = clazz.getName();
+        return !name.startsWith("java.") && !name.startsWith("javax.");
+    }
+
+    private static class KryoHolder {
+        private final Kryo kryo;
+        private int registered;
+
+        KryoHolder(Kryo kryo) {
+            this.kryo = kryo;
+        }
+    }
+}
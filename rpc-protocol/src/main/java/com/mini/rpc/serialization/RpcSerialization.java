@@ -1,9 +1,21 @@
 package com.mini.rpc.serialization;
 
+import io.netty.buffer.ByteBuf;
+
 import java.io.IOException;
 
 public interface RpcSerialization {
     <T> byte[] serialize(T obj) throws IOException;
 
+    /**
+     * 直接序列化写入 out，不经过中间 byte[]
+     */
+    <T> void serialize(T obj, ByteBuf out) throws IOException;
+
     <T> T deserialize(byte[] data, Class<T> clz) throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * 直接从 ByteBuf 中反序列化，不拷贝出中间 byte[]，读取 in 的全部可读字节
+     */
+    <T> T deserialize(ByteBuf in, Class<T> clz) throws IOException;
+}
@@ -1,17 +1,21 @@
 package com.mini.rpc.serialization;
 
+import java.util.Arrays;
+
 public class SerializationFactory {
 
-    public static RpcSerialization getRpcSerialization(byte serializationType) {
-        SerializationTypeEnum typeEnum = SerializationTypeEnum.findByType(serializationType);
+    /**
+     * 按序列化类型字节直接下标查找，序列化实现均为无状态单例；未知类型与 findByType 一致回退到 HESSIAN
+     */
+    private static final RpcSerialization[] SERIALIZATIONS = new RpcSerialization[256];
 
-        switch (typeEnum) {
-            case HESSIAN:
-                return new HessianSerialization();
-            case JSON:
-                return new JsonSerialization();
-            default:
-                throw new IllegalArgumentException("serialization type is illegal, " + serializationType);
-        }
+    static {
+        Arrays.fill(SERIALIZATIONS, new HessianSerialization());
+        SERIALIZATIONS[SerializationTypeEnum.JSON.getType() & 0xFF] = new JsonSerialization();
+        SERIALIZATIONS[SerializationTypeEnum.KRYO.getType() & 0xFF] = new KryoSerialization();
+    }
+
+    public static RpcSerialization getRpcSerialization(byte serializationType) {
+        return SERIALIZATIONS[serializationType & 0xFF];
     }
 }
@@ -2,11 +2,21 @@ package com.mini.rpc.provider;
 
 import com.mini.rpc.codec.MiniRpcDecoder;
 import com.mini.rpc.codec.MiniRpcEncoder;
+import com.mini.rpc.common.RpcProperties;
 import com.mini.rpc.common.RpcServiceHelper;
 import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.executor.RpcExecutor;
+import com.mini.rpc.executor.RpcExecutorFactory;
+import com.mini.rpc.executor.RpcExecutorType;
+import com.mini.rpc.handler.GradientConcurrencyLimiter;
+import com.mini.rpc.handler.RpcInvokerRegistry;
+import com.mini.rpc.handler.RpcLoadReporter;
 import com.mini.rpc.handler.RpcRequestHandler;
+import com.mini.rpc.handler.RpcWriteQueue;
 import com.mini.rpc.provider.annotation.RpcService;
 import com.mini.rpc.provider.registry.RegistryService;
+import com.mini.rpc.serialization.KryoSerialization;
+import com.mini.rpc.serialization.SerializationTypeEnum;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
@@ -21,20 +31,56 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 
 import java.net.InetAddress;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Slf4j
 public class RpcProvider implements InitializingBean, BeanPostProcessor {
 
     private String serverAddress;
     private final int serverPort;
+    private final int weight;
     private final RegistryService serviceRegistry;
+    private final boolean lazyDecode;
+    private final int maxBodySize;
+    private final int writeMaxBatch;
+    private final long writeMaxDelayMicros;
+    private final MiniRpcEncoder encoder;
+    private final int executorThreads;
+    private final int executorQueueSize;
+    private final RpcExecutor defaultExecutor;
+    private final List<RpcExecutor> serviceExecutors = new CopyOnWriteArrayList<>();
+    private final boolean adaptiveLimit;
+    private final int adaptiveLimitMin;
+    private final int adaptiveLimitMax;
+    /**
+     * 每个执行器一个并发上限，独占执行器的服务不受共享执行器上其他服务的耗时影响
+     */
+    private final Map<RpcExecutor, GradientConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final RpcLoadReporter loadReporter;
 
-    private final Map<String, Object> rpcServiceMap = new HashMap<>();
+    private final RpcInvokerRegistry invokerRegistry = new RpcInvokerRegistry();
 
-    public RpcProvider(int serverPort, RegistryService serviceRegistry) {
-        this.serverPort = serverPort;
+    public RpcProvider(RpcProperties rpcProperties, RegistryService serviceRegistry) {
+        this.serverPort = rpcProperties.getServicePort();
+        this.weight = rpcProperties.getWeight();
+        this.lazyDecode = rpcProperties.isLazyDecode();
+        this.maxBodySize = rpcProperties.getMaxBodySize();
+        this.writeMaxBatch = rpcProperties.getWriteMaxBatch();
+        this.writeMaxDelayMicros = rpcProperties.getWriteMaxDelayMicros();
+        this.encoder = new MiniRpcEncoder(rpcProperties.getCompressThreshold());
+        this.executorThreads = rpcProperties.getExecutorThreads();
+        this.executorQueueSize = rpcProperties.getExecutorQueueSize();
+        this.defaultExecutor = RpcExecutorFactory.create(RpcExecutorType.valueOf(rpcProperties.getExecutorType()),
+                "rpc-provider", executorThreads, executorQueueSize);
+        this.adaptiveLimit = rpcProperties.isAdaptiveLimit();
+        this.adaptiveLimitMin = rpcProperties.getAdaptiveLimitMin();
+        this.adaptiveLimitMax = rpcProperties.getAdaptiveLimitMax();
+        addLimiter(defaultExecutor, executorThreads);
+        this.loadReporter = rpcProperties.getLoadReportIntervalMillis() >= 0
+                ? new RpcLoadReporter(rpcProperties.getLoadReportIntervalMillis()) : null;
         this.serviceRegistry = serviceRegistry;
     }
 
@@ -62,9 +108,10 @@ public class RpcProvider implements InitializingBean, BeanPostProcessor {
                         @Override
                         protected void initChannel(SocketChannel socketChannel) throws Exception {
                             socketChannel.pipeline()
-                                    .addLast(new MiniRpcEncoder())
-                                    .addLast(new MiniRpcDecoder())
-                                    .addLast(new RpcRequestHandler(rpcServiceMap));
+                                    .addLast(encoder)
+                                    .addLast(new MiniRpcDecoder(lazyDecode, maxBodySize))
+                                    .addLast(new RpcRequestHandler(invokerRegistry, encoder,
+                                            new RpcWriteQueue(socketChannel, writeMaxBatch, writeMaxDelayMicros), defaultExecutor, limiters, loadReporter));
                         }
                     })
                     .childOption(ChannelOption.SO_KEEPALIVE, true);
@@ -75,6 +122,8 @@ public class RpcProvider implements InitializingBean, BeanPostProcessor {
         } finally {
             boss.shutdownGracefully();
             worker.shutdownGracefully();
+            defaultExecutor.shutdown();
+            serviceExecutors.forEach(RpcExecutor::shutdown);
         }
     }
 
@@ -91,9 +140,13 @@ public class RpcProvider implements InitializingBean, BeanPostProcessor {
                 serviceMeta.setServicePort(serverPort);
                 serviceMeta.setServiceName(serviceName);
                 serviceMeta.setServiceVersion(serviceVersion);
+                serviceMeta.setWeight(weight);
 
+                KryoSerialization.registerServiceInterface(rpcService.serviceInterface());
                 serviceRegistry.register(serviceMeta);
-                rpcServiceMap.put(RpcServiceHelper.buildServiceKey(serviceMeta.getServiceName(), serviceMeta.getServiceVersion()), bean);
+                Byte serialization = rpcService.serialization().isEmpty()
+                        ? null : (byte) SerializationTypeEnum.valueOf(rpcService.serialization()).getType();
+                invokerRegistry.register(rpcService.serviceInterface(), serviceVersion, bean, serialization, createExecutor(rpcService, serviceName));
             } catch (Exception e) {
                 log.error("failed to register service {}{}{}", serviceName,RpcServiceHelper.SERVICE_JOIN,serviceVersion, e);
             }
@@ -101,4 +154,30 @@ public class RpcProvider implements InitializingBean, BeanPostProcessor {
         return bean;
     }
 
+    /**
+     * 并发上限从执行器的线程数开始，按耗时在 [adaptiveLimitMin, adaptiveLimitMax] 内调整
+     */
+    private void addLimiter(RpcExecutor executor, int threads) {
+        if (adaptiveLimit) {
+            limiters.put(executor, new GradientConcurrencyLimiter(threads, adaptiveLimitMin, adaptiveLimitMax));
+        }
+    }
+
+    /**
+     * 注解指定了执行方式或线程数时为服务创建独占执行器，否则返回 null 使用共享执行器
+     */
+    private RpcExecutor createExecutor(RpcService rpcService, String serviceName) {
+        if (rpcService.executor().isEmpty() && rpcService.executorThreads() <= 0) {
+            return null;
+        }
+        RpcExecutorType type = rpcService.executor().isEmpty() ? RpcExecutorType.POOL : RpcExecutorType.valueOf(rpcService.executor());
+        int threads = rpcService.executorThreads() > 0 ? rpcService.executorThreads() : executorThreads;
+        int queueSize = rpcService.executorQueueSize() > 0 ? rpcService.executorQueueSize() : executorQueueSize;
+        RpcExecutor executor = RpcExecutorFactory.create(type, "rpc-" + rpcService.serviceInterface().getSimpleName(), threads, queueSize);
+        serviceExecutors.add(executor);
+        addLimiter(executor, threads);
+        log.info("service {} uses its own {} executor", serviceName, type);
+        return executor;
+    }
+
 }
@@ -20,7 +20,8 @@ public class RpcProviderAutoConfiguration {
     @Bean
     public RpcProvider init() throws Exception {
         RegistryType type = RegistryType.valueOf(rpcProperties.getRegistryType());
+        RegistryFactory.configure(rpcProperties);
         RegistryService serviceRegistry = RegistryFactory.getInstance(rpcProperties.getRegistryAddr(), type);
-        return new RpcProvider(rpcProperties.getServicePort(), serviceRegistry);
+        return new RpcProvider(rpcProperties, serviceRegistry);
     }
 }
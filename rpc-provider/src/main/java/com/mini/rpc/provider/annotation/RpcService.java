@@ -15,4 +15,24 @@ public @interface RpcService {
     Class<?> serviceInterface() default Object.class;
 
     String serviceVersion() default "1.0";
+
+    /**
+     * 响应使用的序列化类型，见 SerializationTypeEnum；为空时沿用请求的序列化类型
+     */
+    String serialization() default "";
+
+    /**
+     * 执行该服务请求的方式，见 RpcExecutorType；为空且未指定线程数时使用 rpc.executor-type 配置的共享执行器
+     */
+    String executor() default "";
+
+    /**
+     * 服务独占执行器的线程数，大于 0 时该服务不再与其他服务共用执行器，未指定 executor 时按 POOL 创建
+     */
+    int executorThreads() default 0;
+
+    /**
+     * 服务独占线程池的队列长度，为 0 时使用 rpc.executor-queue-size
+     */
+    int executorQueueSize() default 0;
 }
@@ -2,6 +2,9 @@ package com.mini.rpc.provider.registry;
 
 import com.mini.rpc.common.ServiceMeta;
 
+import java.util.Collections;
+import java.util.List;
+
 public class EurekaRegistryService implements RegistryService {
 
     public EurekaRegistryService(String registryAddr) {
@@ -23,6 +26,11 @@ public class EurekaRegistryService implements RegistryService {
         return null;
     }
 
+    @Override
+    public List<ServiceMeta> queryInstances(String serviceName) {
+        return Collections.emptyList();
+    }
+
     @Override
     public void destroy() {
 
@@ -1,37 +1,93 @@
 package com.mini.rpc.provider.registry;
 
 import com.alibaba.nacos.api.PropertyKeyConst;
+import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.api.naming.NamingFactory;
 import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
 import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.mini.rpc.common.RpcConstants;
 import com.mini.rpc.common.RpcServiceHelper;
 import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.provider.registry.loadbalancer.ZKConsistentHashLoadBalancer;
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author yinmengqi
  * @date 2023/8/15 14:40
  */
+@Slf4j
 public class NacosRegistryService implements RegistryService {
 
     private final NamingService naming;
 
-    @SneakyThrows
+    private final int virtualNodeSize;
+
+    /**
+     * 本地快照文件，为 null 时不持久化
+     */
+    private final RegistrySnapshotFile snapshotFile;
+
+    /**
+     * 每个服务首次发现时订阅的监听器，实例变化时由 Nacos 推送并重建快照
+     */
+    private final Map<String, EventListener> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * 每个服务当前健康实例的不可变快照，发现时只读取快照，不访问 Nacos
+     */
+    private final Map<String, ServiceSnapshot> snapshots = new ConcurrentHashMap<>();
+
     public NacosRegistryService(String registryAddr) {
+        this(registryAddr, ZKConsistentHashLoadBalancer.DEFAULT_VIRTUAL_NODE_SIZE);
+    }
+
+    public NacosRegistryService(String registryAddr, int virtualNodeSize) {
+        this(registryAddr, virtualNodeSize, null);
+    }
+
+    public NacosRegistryService(String registryAddr, int virtualNodeSize, RegistrySnapshotFile snapshotFile) {
+        this(createNamingService(registryAddr), virtualNodeSize, snapshotFile);
+    }
+
+    public NacosRegistryService(NamingService naming, int virtualNodeSize) {
+        this(naming, virtualNodeSize, null);
+    }
+
+    public NacosRegistryService(NamingService naming, int virtualNodeSize, RegistrySnapshotFile snapshotFile) {
+        this.naming = naming;
+        this.virtualNodeSize = Math.max(1, virtualNodeSize);
+        this.snapshotFile = snapshotFile;
+    }
+
+    @SneakyThrows
+    private static NamingService createNamingService(String registryAddr) {
         Properties properties = new Properties();
         properties.put(PropertyKeyConst.SERVER_ADDR, registryAddr);
         properties.put(PropertyKeyConst.USERNAME, "nacos");
         properties.put(PropertyKeyConst.PASSWORD, "z0b61ZonO4oklLwz");
         properties.put(PropertyKeyConst.NAMESPACE,"test");
-        naming = NamingFactory.createNamingService(properties);
+        return NamingFactory.createNamingService(properties);
     }
 
     @Override
     public void register(ServiceMeta serviceMeta) throws Exception {
-        naming.registerInstance(RpcServiceHelper.buildServiceKey(serviceMeta.getServiceName(), serviceMeta.getServiceVersion()), serviceMeta.getServiceAddr(), serviceMeta.getServicePort());
+        Instance instance = new Instance();
+        instance.setIp(serviceMeta.getServiceAddr());
+        instance.setPort(serviceMeta.getServicePort());
+        instance.setClusterName(Constants.DEFAULT_CLUSTER_NAME);
+        // Nacos 的默认权重为 1.0，对应 DEFAULT_WEIGHT
+        instance.setWeight((double) serviceMeta.getWeight() / RpcConstants.DEFAULT_WEIGHT);
+        naming.registerInstance(RpcServiceHelper.buildServiceKey(serviceMeta.getServiceName(), serviceMeta.getServiceVersion()), instance);
     }
 
     @Override
@@ -41,18 +97,103 @@ public class NacosRegistryService implements RegistryService {
 
     @Override
     public ServiceMeta discovery(String serviceName, int invokerHashCode) throws Exception {
-        Instance instance = naming.selectOneHealthyInstance(serviceName);
+        return getSnapshot(serviceName).ring(virtualNodeSize).select(invokerHashCode);
+    }
+
+    @Override
+    public List<ServiceMeta> queryInstances(String serviceName) throws Exception {
+        return getSnapshot(serviceName).instances;
+    }
+
+    private ServiceSnapshot getSnapshot(String serviceName) throws Exception {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        List<ServiceMeta> persisted = snapshotFile == null ? null : snapshotFile.get(serviceName);
+        if (persisted == null) {
+            return subscribe(serviceName);
+        }
+        // 先按本地快照路由，订阅和首次查询在后台完成后替换
+        snapshot = ServiceSnapshot.of(persisted, false);
+        ServiceSnapshot existing = snapshots.putIfAbsent(serviceName, snapshot);
+        if (existing != null) {
+            return existing;
+        }
+        snapshotFile.catchUp(serviceName, () -> subscribe(serviceName));
+        return snapshot;
+    }
+
+    /**
+     * 先订阅再同步查询一次实例列表；推送可能先于查询结果到达，查询结果只替换本地快照文件中的实例，不覆盖推送的更新
+     */
+    private ServiceSnapshot subscribe(String serviceName) throws Exception {
+        synchronized (listeners) {
+            if (!listeners.containsKey(serviceName)) {
+                EventListener listener = event -> {
+                    if (event instanceof NamingEvent) {
+                        update(serviceName, makeSnapshot(serviceName, ((NamingEvent) event).getInstances()));
+                    }
+                };
+                naming.subscribe(serviceName, listener);
+                listeners.put(serviceName, listener);
+            }
+        }
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot != null && snapshot.live) {
+            return snapshot;
+        }
+        ServiceSnapshot loaded = makeSnapshot(serviceName, naming.selectInstances(serviceName, true));
+        return snapshots.compute(serviceName, (key, current) -> current == null || !current.live ? save(key, loaded) : current);
+    }
+
+    private void update(String serviceName, ServiceSnapshot snapshot) {
+        snapshots.compute(serviceName, (key, current) -> save(key, snapshot));
+    }
+
+    /**
+     * 在 compute 内调用，同一服务的快照和快照文件按相同顺序更新
+     */
+    private ServiceSnapshot save(String serviceName, ServiceSnapshot snapshot) {
+        if (snapshotFile != null) {
+            snapshotFile.update(serviceName, snapshot.instances);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 只保留与 selectInstances(serviceName, true) 相同条件的实例：健康、启用且权重大于 0
+     */
+    private ServiceSnapshot makeSnapshot(String serviceName, List<Instance> instances) {
         String[] split = serviceName.split(RpcServiceHelper.SERVICE_JOIN);
-        return new ServiceMeta()
-                .setServiceAddr(instance.getIp())
-                .setServicePort(instance.getPort())
-                .setServiceName(split[0])
-                .setServiceVersion(split[1]);
+        List<ServiceMeta> serviceMetas = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (!instance.isHealthy() || !instance.isEnabled() || instance.getWeight() <= 0) {
+                continue;
+            }
+            serviceMetas.add(new ServiceMeta()
+                    .setServiceAddr(instance.getIp())
+                    .setServicePort(instance.getPort())
+                    .setServiceName(split[0])
+                    .setServiceVersion(split[1])
+                    .setWeight((int) Math.round(instance.getWeight() * RpcConstants.DEFAULT_WEIGHT)));
+        }
+        return ServiceSnapshot.of(serviceMetas, true);
     }
 
     @SneakyThrows
     @Override
     public void destroy() throws IOException {
+        for (Map.Entry<String, EventListener> entry : listeners.entrySet()) {
+            try {
+                naming.unsubscribe(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.warn("unsubscribe service {} error", entry.getKey(), e);
+            }
+        }
         naming.shutDown();
+        if (snapshotFile != null) {
+            snapshotFile.close();
+        }
     }
 }
@@ -1,9 +1,22 @@
 package com.mini.rpc.provider.registry;
 
+import com.mini.rpc.common.RpcProperties;
+
+import java.nio.file.Paths;
+
 public class RegistryFactory {
 
     private static volatile RegistryService registryService;
 
+    private static volatile RpcProperties rpcProperties = new RpcProperties();
+
+    /**
+     * 在首次 getInstance 之前调用才会生效
+     */
+    public static void configure(RpcProperties properties) {
+        rpcProperties = properties;
+    }
+
     public static RegistryService getInstance(String registryAddr, RegistryType type) throws Exception {
 
         if (null == registryService) {
@@ -11,13 +24,15 @@ public class RegistryFactory {
                 if (null == registryService) {
                     switch (type) {
                         case ZOOKEEPER:
-                            registryService = new ZookeeperRegistryService(registryAddr);
+                            registryService = new ZookeeperRegistryService(registryAddr, rpcProperties.getVirtualNodeSize(),
+                                    createSnapshotFile(registryAddr, type));
                             break;
                         case EUREKA:
                             registryService = new EurekaRegistryService(registryAddr);
                             break;
                         case NACOS:
-                            registryService = new NacosRegistryService(registryAddr);
+                            registryService = new NacosRegistryService(registryAddr, rpcProperties.getVirtualNodeSize(),
+                                    createSnapshotFile(registryAddr, type));
                             break;
                     }
                 }
@@ -25,4 +40,16 @@ public class RegistryFactory {
         }
         return registryService;
     }
+
+    /**
+     * 每个注册中心地址使用单独的快照文件，未配置目录时返回 null
+     */
+    private static RegistrySnapshotFile createSnapshotFile(String registryAddr, RegistryType type) {
+        String dir = rpcProperties.getRegistrySnapshotDir();
+        if (dir == null || dir.isEmpty()) {
+            return null;
+        }
+        String fileName = type.name().toLowerCase() + "-" + registryAddr.replaceAll("[^0-9A-Za-z.-]", "_") + ".snapshot";
+        return new RegistrySnapshotFile(Paths.get(dir, fileName));
+    }
 }
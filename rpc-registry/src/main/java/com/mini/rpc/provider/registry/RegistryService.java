@@ -3,6 +3,7 @@ package com.mini.rpc.provider.registry;
 import com.mini.rpc.common.ServiceMeta;
 
 import java.io.IOException;
+import java.util.List;
 
 public interface RegistryService {
 
@@ -10,7 +11,15 @@ public interface RegistryService {
 
     void unRegister(ServiceMeta serviceMeta) throws Exception;
 
+    /**
+     * 按一致性哈希选出单个实例，供不经过消费者负载均衡的调用方使用；消费者通过 {@link #queryInstances} 选择提供者
+     */
     ServiceMeta discovery(String serviceName, int invokerHashCode) throws Exception;
 
+    /**
+     * 服务的全部可用实例，由调用方的负载均衡策略选择；实例未变化时应返回同一个列表对象，便于调用方复用据此构建的状态
+     */
+    List<ServiceMeta> queryInstances(String serviceName) throws Exception;
+
     void destroy() throws IOException;
 }
@@ -0,0 +1,232 @@
+package com.mini.rpc.provider.registry;
+
+import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.common.ServiceMeta;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * 注册中心最近一次返回的各服务实例列表的本地快照。启动时立即加载，注册中心尚未响应或不可用时先用快照路由，
+ * 由后台线程持续重试实时发现；实例变化后合并一段时间再写入临时文件并原子替换，进程中途退出不会留下半个文件
+ * <pre>
+ * | 魔数 4byte | 版本 1byte | 服务数 4byte | 服务 * N | CRC32 4byte |
+ * 服务：| 服务键 UTF | 实例数 4byte | 实例 * M |
+ * 实例：| 地址 UTF | 端口 4byte | 权重 4byte |
+ * </pre>
+ */
+@Slf4j
+public class RegistrySnapshotFile {
+
+    private static final int MAGIC = 0x4d525353;
+
+    private static final byte VERSION = 1;
+
+    private static final long FLUSH_DELAY_MILLIS = 1000;
+
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 5000;
+
+    private final Path file;
+
+    private final long retryDelayMillis;
+
+    /**
+     * 各服务最近一次已知的实例列表，包括从文件加载的和注册中心推送的
+     */
+    private final Map<String, List<ServiceMeta>> services;
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * 写文件和后台发现共用的单个守护线程
+     */
+    private final ScheduledThreadPoolExecutor executor;
+
+    public RegistrySnapshotFile(Path file) {
+        this(file, DEFAULT_RETRY_DELAY_MILLIS);
+    }
+
+    public RegistrySnapshotFile(Path file, long retryDelayMillis) {
+        this.file = file;
+        this.retryDelayMillis = retryDelayMillis;
+        this.services = new ConcurrentHashMap<>(read(file));
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "rpc-registry-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!services.isEmpty()) {
+            log.info("loaded {} services from registry snapshot {}", services.size(), file);
+        }
+    }
+
+    /**
+     * 服务最近一次已知的实例列表，没有记录时返回 null
+     */
+    public List<ServiceMeta> get(String serviceKey) {
+        return services.get(serviceKey);
+    }
+
+    /**
+     * 记录注册中心返回的实例列表，与已记录的不同时延迟写入文件；空列表不保存，避免启动时把服务误判为没有实例
+     */
+    public void update(String serviceKey, List<ServiceMeta> instances) {
+        List<ServiceMeta> previous = instances.isEmpty() ? services.remove(serviceKey) : services.put(serviceKey, instances);
+        if (instances.isEmpty() ? previous == null : instances.equals(previous)) {
+            return;
+        }
+        if (dirty.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 注册中心已销毁，之后的变化不再写入
+            }
+        }
+    }
+
+    /**
+     * 在后台执行实时发现，失败时按间隔重试直到成功，期间调用方继续使用快照
+     */
+    public void catchUp(String serviceKey, Callable<?> discovery) {
+        executor.execute(() -> {
+            try {
+                discovery.call();
+                log.info("service {} discovered from registry, local snapshot replaced", serviceKey);
+            } catch (Exception e) {
+                if (executor.isShutdown()) {
+                    return;
+                }
+                log.warn("discover service {} from registry failed, serving local snapshot, retry in {} ms", serviceKey, retryDelayMillis, e);
+                executor.schedule(() -> catchUp(serviceKey, discovery), retryDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    public synchronized void flush() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            write(file, services);
+        } catch (IOException e) {
+            log.warn("write registry snapshot {} error", file, e);
+        }
+    }
+
+    public void close() {
+        executor.shutdownNow();
+        flush();
+    }
+
+    private static void write(Path file, Map<String, List<ServiceMeta>> services) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        // 遍历过程中可能有并发更新，先复制再写出，保证服务数与内容一致
+        Map<String, List<ServiceMeta>> copy = new HashMap<>(services);
+        out.writeInt(copy.size());
+        for (Map.Entry<String, List<ServiceMeta>> entry : copy.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (ServiceMeta serviceMeta : entry.getValue()) {
+                out.writeUTF(serviceMeta.getServiceAddr());
+                out.writeInt(serviceMeta.getServicePort());
+                out.writeInt(serviceMeta.getWeight());
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        // 临时文件与目标在同一目录，多个进程共用快照文件时各自写自己的临时文件
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 文件不存在、已损坏或版本不符时返回空，回到同步查询注册中心
+     */
+    private static Map<String, List<ServiceMeta>> read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyMap();
+        }
+        try {
+            byte[] data = Files.readAllBytes(file);
+            if (data.length < 13) {
+                throw new IOException("truncated file");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length - 4);
+            if ((int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+                throw new IOException("checksum mismatch");
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("unknown format");
+            }
+            int serviceCount = in.readInt();
+            Map<String, List<ServiceMeta>> services = new ConcurrentHashMap<>();
+            for (int i = 0; i < serviceCount; i++) {
+                String serviceKey = in.readUTF();
+                String[] split = serviceKey.split(RpcServiceHelper.SERVICE_JOIN);
+                int instanceCount = in.readInt();
+                List<ServiceMeta> instances = new ArrayList<>(instanceCount);
+                for (int j = 0; j < instanceCount; j++) {
+                    instances.add(new ServiceMeta()
+                            .setServiceAddr(in.readUTF())
+                            .setServicePort(in.readInt())
+                            .setWeight(in.readInt())
+                            .setServiceName(split[0])
+                            .setServiceVersion(split[1]));
+                }
+                services.put(serviceKey, Collections.unmodifiableList(instances));
+            }
+            return services;
+        } catch (Exception e) {
+            log.warn("ignore unreadable registry snapshot {}", file, e);
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.mini.rpc.provider.registry;
+
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.provider.registry.loadbalancer.ConsistentHashRing;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单个服务的不可变实例快照，实例变化时整体替换
+ */
+final class ServiceSnapshot {
+
+    final List<ServiceMeta> instances;
+
+    /**
+     * false 表示取自本地快照文件，注册中心的实例列表到达后替换
+     */
+    final boolean live;
+
+    /**
+     * 只有 {@link RegistryService#discovery} 使用，首次调用时构建；消费者经由 queryInstances 在自己的负载均衡器中选择，
+     * 实例变化时不必为它重建哈希环
+     */
+    private volatile ConsistentHashRing<ServiceMeta> ring;
+
+    private ServiceSnapshot(List<ServiceMeta> instances, boolean live) {
+        this.instances = instances;
+        this.live = live;
+    }
+
+    static ServiceSnapshot of(List<ServiceMeta> instances, boolean live) {
+        return new ServiceSnapshot(Collections.unmodifiableList(instances), live);
+    }
+
+    /**
+     * 并发首次调用时可能各自构建一次，结果相同，后写入的覆盖先写入的
+     */
+    ConsistentHashRing<ServiceMeta> ring(int virtualNodeSize) {
+        ConsistentHashRing<ServiceMeta> current = ring;
+        if (current == null) {
+            current = new ConsistentHashRing<>(instances, ServiceSnapshot::buildServiceMetaKey, virtualNodeSize);
+            ring = current;
+        }
+        return current;
+    }
+
+    private static String buildServiceMetaKey(ServiceMeta serviceMeta) {
+        return String.join(":", serviceMeta.getServiceAddr(), String.valueOf(serviceMeta.getServicePort()));
+    }
+}
@@ -5,15 +5,21 @@ import com.mini.rpc.common.ServiceMeta;
 import com.mini.rpc.provider.registry.loadbalancer.ZKConsistentHashLoadBalancer;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.utils.CloseableUtils;
+import org.apache.curator.x.discovery.ServiceCache;
 import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
 import org.apache.curator.x.discovery.ServiceInstance;
 import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
 
 import java.io.IOException;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ZookeeperRegistryService implements RegistryService {
     public static final int BASE_SLEEP_TIME_MS = 1000;
@@ -22,7 +28,34 @@ public class ZookeeperRegistryService implements RegistryService {
 
     private final ServiceDiscovery<ServiceMeta> serviceDiscovery;
 
+    /**
+     * 每个服务首次发现时创建的本地实例缓存，由 ZooKeeper 子节点 watch 更新，发现时不再访问 ZooKeeper
+     */
+    private final Map<String, ServiceCache<ServiceMeta>> serviceCaches = new ConcurrentHashMap<>();
+
+    /**
+     * 每个服务当前的实例列表，缓存中的实例变化时替换
+     */
+    private final Map<String, ServiceSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final int virtualNodeSize;
+
+    /**
+     * 本地快照文件，为 null 时不持久化
+     */
+    private final RegistrySnapshotFile snapshotFile;
+
     public ZookeeperRegistryService(String registryAddr) throws Exception {
+        this(registryAddr, ZKConsistentHashLoadBalancer.DEFAULT_VIRTUAL_NODE_SIZE);
+    }
+
+    public ZookeeperRegistryService(String registryAddr, int virtualNodeSize) throws Exception {
+        this(registryAddr, virtualNodeSize, null);
+    }
+
+    public ZookeeperRegistryService(String registryAddr, int virtualNodeSize, RegistrySnapshotFile snapshotFile) throws Exception {
+        this.virtualNodeSize = Math.max(1, virtualNodeSize);
+        this.snapshotFile = snapshotFile;
         CuratorFramework client = CuratorFrameworkFactory.newClient(registryAddr, new ExponentialBackoffRetry(BASE_SLEEP_TIME_MS, MAX_RETRIES));
         client.start();
         JsonInstanceSerializer<ServiceMeta> serializer = new JsonInstanceSerializer<>(ServiceMeta.class);
@@ -60,16 +93,94 @@ public class ZookeeperRegistryService implements RegistryService {
 
     @Override
     public ServiceMeta discovery(String serviceName, int invokerHashCode) throws Exception {
-        Collection<ServiceInstance<ServiceMeta>> serviceInstances = serviceDiscovery.queryForInstances(serviceName);
-        ServiceInstance<ServiceMeta> instance = new ZKConsistentHashLoadBalancer().select((List<ServiceInstance<ServiceMeta>>) serviceInstances, invokerHashCode);
-        if (instance != null) {
-            return instance.getPayload();
+        return getSnapshot(serviceName).ring(virtualNodeSize).select(invokerHashCode);
+    }
+
+    @Override
+    public List<ServiceMeta> queryInstances(String serviceName) throws Exception {
+        return getSnapshot(serviceName).instances;
+    }
+
+    private ServiceSnapshot getSnapshot(String serviceName) throws Exception {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        List<ServiceMeta> persisted = snapshotFile == null ? null : snapshotFile.get(serviceName);
+        if (persisted == null) {
+            return refresh(getServiceCache(serviceName), serviceName);
+        }
+        // 先按本地快照路由，ZooKeeper 的实例列表加载完成后由 refresh 替换
+        snapshot = ServiceSnapshot.of(persisted, false);
+        ServiceSnapshot existing = snapshots.putIfAbsent(serviceName, snapshot);
+        if (existing != null) {
+            return existing;
+        }
+        snapshotFile.catchUp(serviceName, () -> refresh(getServiceCache(serviceName), serviceName));
+        return snapshot;
+    }
+
+    /**
+     * 缓存启动时同步加载一次实例列表，之后随节点变化更新
+     */
+    private ServiceCache<ServiceMeta> getServiceCache(String serviceName) throws Exception {
+        ServiceCache<ServiceMeta> serviceCache = serviceCaches.get(serviceName);
+        if (serviceCache != null) {
+            return serviceCache;
+        }
+        synchronized (serviceCaches) {
+            serviceCache = serviceCaches.get(serviceName);
+            if (serviceCache == null) {
+                ServiceCache<ServiceMeta> cache = serviceDiscovery.serviceCacheBuilder().name(serviceName).build();
+                cache.addListener(new ServiceCacheListener() {
+                    @Override
+                    public void cacheChanged() {
+                        refresh(cache, serviceName);
+                    }
+
+                    @Override
+                    public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                    }
+                });
+                try {
+                    cache.start();
+                } catch (Exception e) {
+                    // ZooKeeper 不可用，关闭这次创建的缓存，下次发现时重新创建
+                    CloseableUtils.closeQuietly(cache);
+                    throw e;
+                }
+                serviceCache = cache;
+                serviceCaches.put(serviceName, serviceCache);
+            }
+            return serviceCache;
+        }
+    }
+
+    /**
+     * 与缓存变化事件并发时串行执行，保证最后写入的快照来自最新的实例列表
+     */
+    private ServiceSnapshot refresh(ServiceCache<ServiceMeta> serviceCache, String serviceName) {
+        synchronized (serviceCache) {
+            List<ServiceInstance<ServiceMeta>> serviceInstances = serviceCache.getInstances();
+            List<ServiceMeta> instances = new ArrayList<>(serviceInstances.size());
+            for (ServiceInstance<ServiceMeta> serviceInstance : serviceInstances) {
+                instances.add(serviceInstance.getPayload());
+            }
+            ServiceSnapshot snapshot = ServiceSnapshot.of(instances, true);
+            snapshots.put(serviceName, snapshot);
+            if (snapshotFile != null) {
+                snapshotFile.update(serviceName, snapshot.instances);
+            }
+            return snapshot;
         }
-        return null;
     }
 
     @Override
     public void destroy() throws IOException {
+        // 同时关闭由 serviceDiscovery 创建的服务缓存
         serviceDiscovery.close();
+        if (snapshotFile != null) {
+            snapshotFile.close();
+        }
     }
 }
@@ -0,0 +1,94 @@
+package com.mini.rpc.provider.registry.loadbalancer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 不可变的一致性哈希环，虚拟节点的散列值排序后存放在 int 数组中，选择时二分查找，不产生对象分配。
+ * 只在实例列表变化时重建
+ */
+public final class ConsistentHashRing<T> {
+
+    private static final String VIRTUAL_NODE_SPLIT = "#";
+
+    private final int[] hashes;
+
+    private final Object[] nodes;
+
+    private final List<T> servers;
+
+    /**
+     * @param keyFunction 实例的唯一标识（如 ip:port），虚拟节点的散列由它和虚拟节点序号计算
+     */
+    public ConsistentHashRing(List<T> servers, Function<T, String> keyFunction, int virtualNodes) {
+        this.servers = servers;
+        int size = servers.size() * virtualNodes;
+        // 高 32 位为散列值、低 32 位为实例下标，排序后相同散列值按实例下标排列，结果与实例顺序无关
+        long[] points = new long[size];
+        int n = 0;
+        for (int i = 0; i < servers.size(); i++) {
+            String key = keyFunction.apply(servers.get(i));
+            for (int v = 0; v < virtualNodes; v++) {
+                points[n++] = (long) MurmurHash3.hash32(key + VIRTUAL_NODE_SPLIT + v) << 32 | i;
+            }
+        }
+        Arrays.sort(points);
+        this.hashes = new int[size];
+        this.nodes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = (int) (points[i] >> 32);
+            nodes[i] = servers.get((int) points[i]);
+        }
+    }
+
+    public List<T> getServers() {
+        return servers;
+    }
+
+    public boolean isEmpty() {
+        return hashes.length == 0;
+    }
+
+    /**
+     * 顺时针找到第一个不小于 hashCode 散列值的虚拟节点，环为空时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public T select(int hashCode) {
+        if (hashes.length == 0) {
+            return null;
+        }
+        return (T) nodes[indexOf(hashCode)];
+    }
+
+    /**
+     * 从 hashCode 的位置顺时针查找第一个满足 accept 的节点，都不满足时返回首个节点
+     */
+    @SuppressWarnings("unchecked")
+    public T select(int hashCode, Predicate<? super T> accept) {
+        if (hashes.length == 0) {
+            return null;
+        }
+        int start = indexOf(hashCode);
+        for (int i = 0; i < nodes.length; i++) {
+            int index = start + i < nodes.length ? start + i : start + i - nodes.length;
+            T node = (T) nodes[index];
+            if (accept.test(node)) {
+                return node;
+            }
+        }
+        return (T) nodes[start];
+    }
+
+    private int indexOf(int hashCode) {
+        int index = Arrays.binarySearch(hashes, MurmurHash3.fmix32(hashCode));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == hashes.length) {
+                index = 0;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,61 @@
+package com.mini.rpc.provider.registry.loadbalancer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MurmurHash3 x86_32，用于一致性哈希环上虚拟节点和调用键的散列
+ */
+public final class MurmurHash3 {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private MurmurHash3() {
+    }
+
+    public static int hash32(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        return hash32(data, 0, data.length, 0);
+    }
+
+    public static int hash32(byte[] data, int offset, int length, int seed) {
+        int h = seed;
+        int end = offset + (length & ~3);
+        for (int i = offset; i < end; i += 4) {
+            int k = (data[i] & 0xff) | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff) << 16 | data[i + 3] << 24;
+            h ^= mixK(k);
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+        int k = 0;
+        switch (length & 3) {
+            case 3:
+                k ^= (data[end + 2] & 0xff) << 16;
+            case 2:
+                k ^= (data[end + 1] & 0xff) << 8;
+            case 1:
+                k ^= data[end] & 0xff;
+                h ^= mixK(k);
+            default:
+        }
+        return fmix32(h ^ length);
+    }
+
+    /**
+     * 对已有的 int 散列值（如参数的 hashCode）再做一次雪崩混合，使相邻的值均匀落在环上
+     */
+    public static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mixK(int k) {
+        k *= C1;
+        k = Integer.rotateLeft(k, 15);
+        return k * C2;
+    }
+}
@@ -4,38 +4,33 @@ import com.mini.rpc.common.ServiceMeta;
 import org.apache.curator.x.discovery.ServiceInstance;
 
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 public class ZKConsistentHashLoadBalancer implements ServiceLoadBalancer<ServiceInstance<ServiceMeta>> {
-    private final static int VIRTUAL_NODE_SIZE = 10;
-    private final static String VIRTUAL_NODE_SPLIT = "#";
+    public final static int DEFAULT_VIRTUAL_NODE_SIZE = 160;
 
-    @Override
-    public ServiceInstance<ServiceMeta> select(List<ServiceInstance<ServiceMeta>> servers, int hashCode) {
-        TreeMap<Integer, ServiceInstance<ServiceMeta>> ring = makeConsistentHashRing(servers);
-        return allocateNode(ring, hashCode);
+    private final int virtualNodeSize;
+
+    public ZKConsistentHashLoadBalancer() {
+        this(DEFAULT_VIRTUAL_NODE_SIZE);
     }
 
-    private ServiceInstance<ServiceMeta> allocateNode(TreeMap<Integer, ServiceInstance<ServiceMeta>> ring, int hashCode) {
-        Map.Entry<Integer, ServiceInstance<ServiceMeta>> entry = ring.ceilingEntry(hashCode);
-        if (entry == null) {
-            entry = ring.firstEntry();
-        }
-        return entry.getValue();
+    public ZKConsistentHashLoadBalancer(int virtualNodeSize) {
+        this.virtualNodeSize = Math.max(1, virtualNodeSize);
+    }
+
+    /**
+     * 每次调用都会重建哈希环，实例列表不变时应使用 {@link #makeConsistentHashRing(List)} 的结果选择
+     */
+    @Override
+    public ServiceInstance<ServiceMeta> select(List<ServiceInstance<ServiceMeta>> servers, int hashCode) {
+        return makeConsistentHashRing(servers).select(hashCode);
     }
 
-    private TreeMap<Integer, ServiceInstance<ServiceMeta>> makeConsistentHashRing(List<ServiceInstance<ServiceMeta>> servers) {
-        TreeMap<Integer, ServiceInstance<ServiceMeta>> ring = new TreeMap<>();
-        for (ServiceInstance<ServiceMeta> instance : servers) {
-            for (int i = 0; i < VIRTUAL_NODE_SIZE; i++) {
-                ring.put((buildServiceInstanceKey(instance) + VIRTUAL_NODE_SPLIT + i).hashCode(), instance);
-            }
-        }
-        return ring;
+    public ConsistentHashRing<ServiceInstance<ServiceMeta>> makeConsistentHashRing(List<ServiceInstance<ServiceMeta>> servers) {
+        return new ConsistentHashRing<>(servers, ZKConsistentHashLoadBalancer::buildServiceInstanceKey, virtualNodeSize);
     }
 
-    private String buildServiceInstanceKey(ServiceInstance<ServiceMeta> instance) {
+    private static String buildServiceInstanceKey(ServiceInstance<ServiceMeta> instance) {
         ServiceMeta payload = instance.getPayload();
         return String.join(":", payload.getServiceAddr(), String.valueOf(payload.getServicePort()));
     }
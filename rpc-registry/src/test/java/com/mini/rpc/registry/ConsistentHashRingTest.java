@@ -0,0 +1,111 @@
+package com.mini.rpc.registry;
+
+import com.mini.rpc.provider.registry.loadbalancer.ConsistentHashRing;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+@Slf4j
+public class ConsistentHashRingTest {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private static final int KEYS = 1_000_000;
+
+    private static List<String> servers(int count) {
+        List<String> servers = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            servers.add("192.168.0." + i + ":8080");
+        }
+        return servers;
+    }
+
+    private static ConsistentHashRing<String> ring(List<String> servers) {
+        return new ConsistentHashRing<>(servers, Function.identity(), VIRTUAL_NODES);
+    }
+
+    /**
+     * 随机散列和连续的小整数（如自增 ID 的 hashCode）都应均匀分布，每个提供者的流量与平均值的偏差不超过 25%
+     */
+    @Test
+    public void testDistribution() {
+        for (int count : new int[]{3, 10, 50}) {
+            ConsistentHashRing<String> ring = ring(servers(count));
+            Random random = new Random(42);
+            assertBalanced("random", count, ring, i -> random.nextInt());
+            assertBalanced("sequential", count, ring, i -> i);
+        }
+    }
+
+    @Test
+    public void testOnlyRemovedServerKeysMove() {
+        List<String> servers = servers(10);
+        ConsistentHashRing<String> before = ring(servers);
+        List<String> remaining = new ArrayList<>(servers);
+        String removed = remaining.remove(4);
+        ConsistentHashRing<String> after = ring(remaining);
+        for (int i = 0; i < KEYS; i++) {
+            String owner = before.select(i);
+            if (!owner.equals(removed)) {
+                Assert.assertEquals(owner, after.select(i));
+            }
+        }
+    }
+
+    /**
+     * 节点拒绝时顺时针溢出，结果与从环上去掉该节点后的选择一致
+     */
+    @Test
+    public void testSpillToNextNode() {
+        List<String> servers = servers(10);
+        ConsistentHashRing<String> ring = ring(servers);
+        for (int i = 0; i < 100; i++) {
+            String owner = ring.select(i);
+            List<String> remaining = new ArrayList<>(servers);
+            remaining.remove(owner);
+            Assert.assertEquals(ring(remaining).select(i), ring.select(i, server -> !server.equals(owner)));
+        }
+        Assert.assertEquals(ring.select(7), ring.select(7, server -> false));
+    }
+
+    @Test
+    public void testIndependentOfServerOrder() {
+        List<String> servers = servers(10);
+        List<String> reversed = new ArrayList<>(servers);
+        Collections.reverse(reversed);
+        ConsistentHashRing<String> ring = ring(servers);
+        ConsistentHashRing<String> reversedRing = ring(reversed);
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertEquals(ring.select(i), reversedRing.select(i));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        ConsistentHashRing<String> ring = ring(new ArrayList<>());
+        Assert.assertTrue(ring.isEmpty());
+        Assert.assertNull(ring.select(1));
+    }
+
+    private static void assertBalanced(String name, int count, ConsistentHashRing<String> ring, Function<Integer, Integer> keys) {
+        Map<String, Integer> hits = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            hits.merge(ring.select(keys.apply(i)), 1, Integer::sum);
+        }
+        double mean = (double) KEYS / count;
+        int max = hits.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int min = hits.values().stream().mapToInt(Integer::intValue).min().orElse(0);
+        log.info("{} keys on {} servers: max/mean {}, min/mean {}", name, count, max / mean, min / mean);
+        Assert.assertEquals(count, hits.size());
+        Assert.assertTrue(name + " max/mean " + max / mean, max / mean < 1.25);
+        Assert.assertTrue(name + " min/mean " + min / mean, min / mean > 0.75);
+    }
+}
@@ -0,0 +1,205 @@
+package com.mini.rpc.registry;
+
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.provider.registry.NacosRegistryService;
+import com.mini.rpc.provider.registry.RegistrySnapshotFile;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以进程内的 NamingService 替身代替 Nacos 服务端，验证订阅后的发现只读取本地快照
+ */
+public class NacosRegistryServiceTest {
+
+    private static final String SERVICE_KEY = RpcServiceHelper.buildServiceKey("com.mini.rpc.provider.facade.HelloFacade", "1.0.0");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeNaming fake;
+
+    private NamingService naming;
+
+    private NacosRegistryService registryService;
+
+    @Before
+    public void setUp() {
+        fake = new FakeNaming();
+        fake.instances = Arrays.asList(instance("10.0.0.1", true), instance("10.0.0.2", true),
+                instance("10.0.0.3", true), instance("10.0.0.4", false));
+        naming = (NamingService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{NamingService.class}, fake);
+        registryService = new NacosRegistryService(naming, 160);
+    }
+
+    @Test
+    public void testDiscoveryServedFromSnapshot() throws Exception {
+        ServiceMeta first = registryService.discovery(SERVICE_KEY, 42);
+        for (int i = 0; i < 10_000; i++) {
+            ServiceMeta serviceMeta = registryService.discovery(SERVICE_KEY, i);
+            Assert.assertNotEquals("10.0.0.4", serviceMeta.getServiceAddr());
+        }
+        Assert.assertSame(first, registryService.discovery(SERVICE_KEY, 42));
+        Assert.assertEquals("com.mini.rpc.provider.facade.HelloFacade", first.getServiceName());
+        Assert.assertEquals("1.0.0", first.getServiceVersion());
+        Assert.assertEquals(3, registryService.queryInstances(SERVICE_KEY).size());
+        Assert.assertEquals(1, fake.count("subscribe"));
+        Assert.assertEquals(1, fake.count("selectInstances"));
+    }
+
+    @Test
+    public void testPushReplacesSnapshot() throws Exception {
+        registryService.discovery(SERVICE_KEY, 0);
+        fake.push(Arrays.asList(instance("10.0.0.2", true), instance("10.0.0.5", true), instance("10.0.0.1", false)));
+        Assert.assertEquals(addresses("10.0.0.2", "10.0.0.5"), addresses(registryService.queryInstances(SERVICE_KEY)));
+        for (int i = 0; i < 1000; i++) {
+            String addr = registryService.discovery(SERVICE_KEY, i).getServiceAddr();
+            Assert.assertTrue(addr, addr.equals("10.0.0.2") || addr.equals("10.0.0.5"));
+        }
+
+        fake.push(new ArrayList<>());
+        Assert.assertTrue(registryService.queryInstances(SERVICE_KEY).isEmpty());
+        Assert.assertNull(registryService.discovery(SERVICE_KEY, 0));
+        Assert.assertEquals(1, fake.count("selectInstances"));
+    }
+
+    /**
+     * 订阅后的推送先于首次查询的结果到达时，查询结果已过期，不能覆盖推送的快照
+     */
+    @Test
+    public void testPushDuringInitialLoadWins() throws Exception {
+        fake.pushOnSelect = Arrays.asList(instance("10.0.0.9", true));
+        Assert.assertEquals(addresses("10.0.0.9"), addresses(registryService.queryInstances(SERVICE_KEY)));
+    }
+
+    @Test
+    public void testDestroyUnsubscribes() throws Exception {
+        registryService.discovery(SERVICE_KEY, 0);
+        registryService.destroy();
+        Assert.assertEquals(1, fake.count("unsubscribe"));
+        Assert.assertTrue(fake.listeners.isEmpty());
+        Assert.assertEquals(1, fake.count("shutDown"));
+    }
+
+    /**
+     * 注册中心不可用时按上次保存的快照路由，恢复后由后台重试切换到注册中心的实例列表
+     */
+    @Test
+    public void testServeSnapshotDuringOutage() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("nacos.snapshot");
+        NacosRegistryService first = new NacosRegistryService(naming, 160, new RegistrySnapshotFile(file));
+        Assert.assertEquals(3, first.queryInstances(SERVICE_KEY).size());
+        first.destroy();
+
+        fake.down = true;
+        fake.instances = Arrays.asList(instance("10.0.0.5", true));
+        NacosRegistryService restarted = new NacosRegistryService(naming, 160, new RegistrySnapshotFile(file, 50));
+        Assert.assertEquals(addresses("10.0.0.1", "10.0.0.2", "10.0.0.3"), addresses(restarted.queryInstances(SERVICE_KEY)));
+        Assert.assertNotNull(restarted.discovery(SERVICE_KEY, 0));
+        Thread.sleep(200);
+        Assert.assertEquals(addresses("10.0.0.1", "10.0.0.2", "10.0.0.3"), addresses(restarted.queryInstances(SERVICE_KEY)));
+
+        fake.down = false;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!addresses(restarted.queryInstances(SERVICE_KEY)).equals(addresses("10.0.0.5"))) {
+            Assert.assertTrue("snapshot not replaced after registry recovered", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        restarted.destroy();
+    }
+
+    private static Instance instance(String ip, boolean healthy) {
+        Instance instance = new Instance();
+        instance.setIp(ip);
+        instance.setPort(8080);
+        instance.setHealthy(healthy);
+        return instance;
+    }
+
+    private static Set<String> addresses(String... addrs) {
+        return new HashSet<>(Arrays.asList(addrs));
+    }
+
+    private static Set<String> addresses(List<ServiceMeta> serviceMetas) {
+        Set<String> addrs = new HashSet<>();
+        for (ServiceMeta serviceMeta : serviceMetas) {
+            addrs.add(serviceMeta.getServiceAddr());
+        }
+        return addrs;
+    }
+
+    /**
+     * 只实现注册中心用到的方法，推送在调用线程上同步回调监听器
+     */
+    private static class FakeNaming implements InvocationHandler {
+
+        private final Map<String, Integer> calls = new ConcurrentHashMap<>();
+
+        private final Map<String, EventListener> listeners = new ConcurrentHashMap<>();
+
+        private volatile List<Instance> instances;
+
+        private List<Instance> pushOnSelect;
+
+        /**
+         * 模拟注册中心不可用，订阅和查询都抛出异常
+         */
+        private volatile boolean down;
+
+        int count(String method) {
+            return calls.getOrDefault(method, 0);
+        }
+
+        void push(List<Instance> instances) {
+            this.instances = instances;
+            listeners.forEach((serviceName, listener) -> listener.onEvent(new NamingEvent(serviceName, instances)));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws NacosException {
+            calls.merge(method.getName(), 1, Integer::sum);
+            if (down && !method.getName().equals("shutDown")) {
+                throw new NacosException(NacosException.SERVER_ERROR, "registry unavailable");
+            }
+            switch (method.getName()) {
+                case "subscribe":
+                    listeners.put((String) args[0], (EventListener) args[1]);
+                    return null;
+                case "unsubscribe":
+                    listeners.remove(args[0], args[1]);
+                    return null;
+                case "selectInstances":
+                    List<Instance> result = new ArrayList<>(instances);
+                    if (pushOnSelect != null) {
+                        push(pushOnSelect);
+                    }
+                    return result;
+                case "shutDown":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mini.rpc.registry;
+
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.provider.registry.RegistrySnapshotFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RegistrySnapshotFileTest {
+
+    private static final String SERVICE_KEY = "com.mini.rpc.provider.facade.HelloFacade@1.0.0";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<ServiceMeta> instances(String... addrs) {
+        ServiceMeta[] serviceMetas = new ServiceMeta[addrs.length];
+        for (int i = 0; i < addrs.length; i++) {
+            serviceMetas[i] = new ServiceMeta()
+                    .setServiceName("com.mini.rpc.provider.facade.HelloFacade")
+                    .setServiceVersion("1.0.0")
+                    .setServiceAddr(addrs[i])
+                    .setServicePort(8080 + i)
+                    .setWeight(100 * (i + 1));
+        }
+        return Arrays.asList(serviceMetas);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("nested").resolve("zookeeper.snapshot");
+        RegistrySnapshotFile snapshotFile = new RegistrySnapshotFile(file);
+        snapshotFile.update(SERVICE_KEY, instances("10.0.0.1", "10.0.0.2"));
+        snapshotFile.update("other@2.0.0", instances("10.0.0.3"));
+        snapshotFile.close();
+
+        RegistrySnapshotFile reloaded = new RegistrySnapshotFile(file);
+        Assert.assertEquals(instances("10.0.0.1", "10.0.0.2"), reloaded.get(SERVICE_KEY));
+        Assert.assertEquals("other", reloaded.get("other@2.0.0").get(0).getServiceName());
+        Assert.assertNull(reloaded.get("missing@1.0.0"));
+        reloaded.close();
+        // 原子替换后不应残留临时文件
+        Assert.assertEquals(1, Files.list(file.getParent()).count());
+    }
+
+    @Test
+    public void testEmptyListRemovesService() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("nacos.snapshot");
+        RegistrySnapshotFile snapshotFile = new RegistrySnapshotFile(file);
+        snapshotFile.update(SERVICE_KEY, instances("10.0.0.1"));
+        snapshotFile.flush();
+        snapshotFile.update(SERVICE_KEY, Collections.emptyList());
+        snapshotFile.close();
+        Assert.assertNull(new RegistrySnapshotFile(file).get(SERVICE_KEY));
+    }
+
+    @Test
+    public void testCorruptFileIgnored() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("corrupt.snapshot");
+        RegistrySnapshotFile snapshotFile = new RegistrySnapshotFile(file);
+        snapshotFile.update(SERVICE_KEY, instances("10.0.0.1"));
+        snapshotFile.close();
+
+        byte[] data = Files.readAllBytes(file);
+        data[data.length / 2] ^= 0x5a;
+        Files.write(file, data);
+        Assert.assertNull(new RegistrySnapshotFile(file).get(SERVICE_KEY));
+
+        Files.write(file, Arrays.copyOf(data, 7));
+        Assert.assertNull(new RegistrySnapshotFile(file).get(SERVICE_KEY));
+    }
+}
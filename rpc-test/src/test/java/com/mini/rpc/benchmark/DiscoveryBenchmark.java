@@ -0,0 +1,100 @@
+package com.mini.rpc.benchmark;
+
+import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.provider.registry.ZookeeperRegistryService;
+import com.mini.rpc.provider.registry.loadbalancer.ZKConsistentHashLoadBalancer;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.apache.curator.x.discovery.ServiceDiscovery;
+import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在进程内的 ZooKeeper（curator-test TestingServer）上对比每次发现都查询 ZooKeeper（uncached，即原来的实现）
+ * 与 ZookeeperRegistryService 基于 watch 的本地缓存（cached）的吞吐
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscoveryBenchmark {
+
+    private static final String SERVICE_NAME = "com.mini.rpc.provider.facade.HelloFacade";
+    private static final String SERVICE_VERSION = "1.0.0";
+    private static final String SERVICE_KEY = RpcServiceHelper.buildServiceKey(SERVICE_NAME, SERVICE_VERSION);
+
+    @Param({"3"})
+    private int instances;
+
+    private TestingServer server;
+
+    private CuratorFramework client;
+
+    private ServiceDiscovery<ServiceMeta> serviceDiscovery;
+
+    private ZookeeperRegistryService registryService;
+
+    private int hashCode;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new TestingServer(true);
+        registryService = new ZookeeperRegistryService(server.getConnectString());
+        for (int i = 0; i < instances; i++) {
+            ServiceMeta serviceMeta = new ServiceMeta();
+            serviceMeta.setServiceAddr("127.0.0." + (i + 1));
+            serviceMeta.setServicePort(8080);
+            serviceMeta.setServiceName(SERVICE_NAME);
+            serviceMeta.setServiceVersion(SERVICE_VERSION);
+            registryService.register(serviceMeta);
+        }
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new ExponentialBackoffRetry(1000, 3));
+        client.start();
+        serviceDiscovery = ServiceDiscoveryBuilder.builder(ServiceMeta.class)
+                .client(client)
+                .serializer(new JsonInstanceSerializer<>(ServiceMeta.class))
+                .basePath(ZookeeperRegistryService.ZK_BASE_PATH)
+                .build();
+        serviceDiscovery.start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        serviceDiscovery.close();
+        client.close();
+        registryService.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public ServiceMeta uncached() throws Exception {
+        List<ServiceInstance<ServiceMeta>> serviceInstances =
+                (List<ServiceInstance<ServiceMeta>>) serviceDiscovery.queryForInstances(SERVICE_KEY);
+        return new ZKConsistentHashLoadBalancer().select(serviceInstances, hashCode++).getPayload();
+    }
+
+    @Benchmark
+    public ServiceMeta cached() throws Exception {
+        return registryService.discovery(SERVICE_KEY, hashCode++);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(DiscoveryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
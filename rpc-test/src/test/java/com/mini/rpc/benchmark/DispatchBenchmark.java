@@ -0,0 +1,97 @@
+package com.mini.rpc.benchmark;
+
+import com.mini.rpc.common.MiniRpcRequest;
+import com.mini.rpc.common.RpcServiceHelper;
+import com.mini.rpc.handler.RpcInvoker;
+import com.mini.rpc.handler.RpcInvokerRegistry;
+import com.mini.rpc.handler.RpcMethodTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cglib.reflect.FastClass;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比每次请求拼接服务名并 FastClass.create（legacy）与预绑定调用器表（按方法签名查找 / 按方法 ID 查找）的分发耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    public interface EchoFacade {
+        String echo(String message);
+    }
+
+    public static class EchoFacadeImpl implements EchoFacade {
+        @Override
+        public String echo(String message) {
+            return message;
+        }
+    }
+
+    private final Map<String, Object> rpcServiceMap = new HashMap<>();
+
+    private final RpcInvokerRegistry invokerRegistry = new RpcInvokerRegistry();
+
+    private final RpcMethodTable<RpcInvoker> methodTable = new RpcMethodTable<>();
+
+    private MiniRpcRequest request;
+
+    private int methodId;
+
+    @Setup
+    public void setup() {
+        EchoFacade bean = new EchoFacadeImpl();
+        rpcServiceMap.put(RpcServiceHelper.buildServiceKey(EchoFacade.class.getName(), "1.0.0"), bean);
+        invokerRegistry.register(EchoFacade.class, "1.0.0", bean, null, null);
+
+        request = new MiniRpcRequest();
+        request.setServiceVersion("1.0.0");
+        request.setClassName(EchoFacade.class.getName());
+        request.setMethodName("echo");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParams(new Object[]{"mini rpc"});
+
+        RpcInvoker invoker = invokerRegistry.get(RpcServiceHelper.buildServiceKey(request.getClassName(), request.getServiceVersion()),
+                request.getMethodName(), request.getParameterTypes());
+        methodId = methodTable.register(invoker.getMethodKey(), invoker);
+    }
+
+    @Benchmark
+    public Object legacy() throws Exception {
+        String serviceKey = RpcServiceHelper.buildServiceKey(request.getClassName(), request.getServiceVersion());
+        Object serviceBean = rpcServiceMap.get(serviceKey);
+        Class<?> serviceClass = serviceBean.getClass();
+        FastClass fastClass = FastClass.create(serviceClass);
+        int methodIndex = fastClass.getIndex(request.getMethodName(), request.getParameterTypes());
+        return fastClass.invoke(methodIndex, serviceBean, request.getParams());
+    }
+
+    @Benchmark
+    public Object invokerBySignature() throws Exception {
+        String serviceKey = RpcServiceHelper.buildServiceKey(request.getClassName(), request.getServiceVersion());
+        return invokerRegistry.get(serviceKey, request.getMethodName(), request.getParameterTypes()).invoke(request.getParams());
+    }
+
+    @Benchmark
+    public Object invokerById() throws Exception {
+        return methodTable.get(methodId).invoke(request.getParams());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(DispatchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,127 @@
+package com.mini.rpc.benchmark;
+
+import com.mini.rpc.common.RpcProperties;
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.compress.CompressionTypeEnum;
+import com.mini.rpc.consumer.RpcConsumerFactory;
+import com.mini.rpc.consumer.RpcInvokerProxy;
+import com.mini.rpc.provider.RpcProvider;
+import com.mini.rpc.provider.facade.HelloFacade;
+import com.mini.rpc.provider.facade.HelloFacadeImpl;
+import com.mini.rpc.provider.registry.RegistryService;
+import com.mini.rpc.serialization.SerializationTypeEnum;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机回环上的端到端调用吞吐，消费者与提供者在同一进程内。
+ * writeMaxBatch = 1 时每条消息单独 flush，等同改造前的 writeAndFlush
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(64)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final int PORT = 27900;
+
+    @Param({"1", "64"})
+    private int writeMaxBatch;
+
+    @Param({"0"})
+    private long writeMaxDelayMicros;
+
+    private HelloFacade helloFacade;
+
+    @Setup
+    public void setup() throws Exception {
+        RpcProperties rpcProperties = new RpcProperties();
+        rpcProperties.setServicePort(PORT);
+        rpcProperties.setWriteMaxBatch(writeMaxBatch);
+        rpcProperties.setWriteMaxDelayMicros(writeMaxDelayMicros);
+        RegistryService registryService = new LocalRegistryService();
+
+        RpcProvider rpcProvider = new RpcProvider(rpcProperties, registryService);
+        rpcProvider.postProcessAfterInitialization(new HelloFacadeImpl(), "helloFacade");
+        rpcProvider.afterPropertiesSet();
+        awaitServer();
+
+        RpcConsumerFactory.configure(rpcProperties);
+        helloFacade = (HelloFacade) Proxy.newProxyInstance(
+                HelloFacade.class.getClassLoader(),
+                new Class<?>[]{HelloFacade.class},
+                new RpcInvokerProxy("1.0.0", 3000, (byte) SerializationTypeEnum.KRYO.getType(),
+                        (byte) CompressionTypeEnum.NONE.getType(), registryService));
+    }
+
+    @Benchmark
+    public String hello() {
+        return helloFacade.hello("mini rpc");
+    }
+
+    private static void awaitServer() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            try (Socket ignored = new Socket(InetAddress.getLocalHost(), PORT)) {
+                return;
+            } catch (Exception e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("rpc server not started on port " + PORT);
+    }
+
+    /**
+     * 固定返回本机提供者，不依赖外部注册中心
+     */
+    private static class LocalRegistryService implements RegistryService {
+
+        private volatile List<ServiceMeta> instances;
+
+        @Override
+        public void register(ServiceMeta serviceMeta) {
+        }
+
+        @Override
+        public void unRegister(ServiceMeta serviceMeta) {
+        }
+
+        @Override
+        public ServiceMeta discovery(String serviceName, int invokerHashCode) throws Exception {
+            ServiceMeta serviceMeta = new ServiceMeta();
+            serviceMeta.setServiceAddr(InetAddress.getLocalHost().getHostAddress());
+            serviceMeta.setServicePort(PORT);
+            return serviceMeta;
+        }
+
+        @Override
+        public List<ServiceMeta> queryInstances(String serviceName) throws Exception {
+            if (instances == null) {
+                instances = Collections.singletonList(discovery(serviceName, 0));
+            }
+            return instances;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(EndToEndBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,64 @@
+package com.mini.rpc.benchmark;
+
+import com.mini.rpc.common.MiniRpcFuture;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比每次调用 new DefaultPromise(new DefaultEventLoop())（legacy）与 MiniRpcFuture 的同步等待耗时和分配，
+ * 结果由单独的线程完成，模拟 I/O 线程收到响应
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FutureBenchmark {
+
+    private static final Object RESPONSE = new Object();
+
+    private ExecutorService ioThread;
+
+    @Setup
+    public void setup() {
+        ioThread = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ioThread.shutdownNow();
+    }
+
+    @Benchmark
+    public Object legacy() throws Exception {
+        Promise<Object> promise = new DefaultPromise<>(new DefaultEventLoop());
+        ioThread.execute(() -> promise.trySuccess(RESPONSE));
+        return promise.get(3000, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    public Object miniRpcFuture() throws Exception {
+        MiniRpcFuture<Object> future = new MiniRpcFuture<>(3000);
+        ioThread.execute(() -> future.trySuccess(RESPONSE));
+        return future.get(future.getTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(FutureBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.mini.rpc.benchmark;
+
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.provider.registry.loadbalancer.ConsistentHashRing;
+import com.mini.rpc.provider.registry.loadbalancer.ZKConsistentHashLoadBalancer;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比每次选择都用 String.hashCode 重建 TreeMap（legacy，10 个虚拟节点）与预先构建的 int[] 哈希环（ring，160 个虚拟节点）的选择耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    @Param({"3", "20"})
+    private int instances;
+
+    private List<ServiceInstance<ServiceMeta>> servers;
+
+    private ConsistentHashRing<ServiceInstance<ServiceMeta>> ring;
+
+    private int hashCode;
+
+    @Setup
+    public void setup() throws Exception {
+        servers = new ArrayList<>();
+        for (int i = 0; i < instances; i++) {
+            ServiceMeta serviceMeta = new ServiceMeta();
+            serviceMeta.setServiceAddr("192.168.0." + (i + 1));
+            serviceMeta.setServicePort(8080);
+            servers.add(ServiceInstance.<ServiceMeta>builder().name("bench").payload(serviceMeta).build());
+        }
+        ring = new ZKConsistentHashLoadBalancer().makeConsistentHashRing(servers);
+    }
+
+    @Benchmark
+    public ServiceInstance<ServiceMeta> legacy() {
+        TreeMap<Integer, ServiceInstance<ServiceMeta>> treeRing = new TreeMap<>();
+        for (ServiceInstance<ServiceMeta> instance : servers) {
+            ServiceMeta payload = instance.getPayload();
+            String key = String.join(":", payload.getServiceAddr(), String.valueOf(payload.getServicePort()));
+            for (int i = 0; i < 10; i++) {
+                treeRing.put((key + "#" + i).hashCode(), instance);
+            }
+        }
+        Map.Entry<Integer, ServiceInstance<ServiceMeta>> entry = treeRing.ceilingEntry(hashCode++);
+        return entry == null ? treeRing.firstEntry().getValue() : entry.getValue();
+    }
+
+    @Benchmark
+    public ServiceInstance<ServiceMeta> ring() {
+        return ring.select(hashCode++);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(LoadBalancerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
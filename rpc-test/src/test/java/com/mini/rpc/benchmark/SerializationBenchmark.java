@@ -0,0 +1,113 @@
+package com.mini.rpc.benchmark;
+
+import com.caucho.hessian.io.HessianSerializerInput;
+import com.caucho.hessian.io.HessianSerializerOutput;
+import com.mini.rpc.common.MiniRpcRequest;
+import com.mini.rpc.serialization.RpcSerialization;
+import com.mini.rpc.serialization.SerializationFactory;
+import com.mini.rpc.serialization.SerializationTypeEnum;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比每条消息新建 Hessian 序列化器（legacy）与单例序列化表 + 线程内复用（pooled）的耗时和分配，
+ * 关注 GC profiler 输出的 gc.alloc.rate.norm（每次操作分配字节数）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private MiniRpcRequest request;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws Exception {
+        request = new MiniRpcRequest();
+        request.setServiceVersion("1.0.0");
+        request.setClassName("com.mini.rpc.provider.facade.HelloFacade");
+        request.setMethodName("hello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParams(new Object[]{"mini rpc"});
+        encoded = legacySerialize(request);
+    }
+
+    @Benchmark
+    public int legacyEncode() throws Exception {
+        byte[] data = legacySerialize(request);
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            out.writeInt(data.length);
+            out.writeBytes(data);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public int pooledEncode() throws Exception {
+        RpcSerialization serialization = SerializationFactory.getRpcSerialization((byte) SerializationTypeEnum.HESSIAN.getType());
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            serialization.serialize(request, out);
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public Object legacyDecode() throws Exception {
+        HessianSerializerInput input = new HessianSerializerInput(new ByteArrayInputStream(encoded.clone()));
+        return input.readObject(MiniRpcRequest.class);
+    }
+
+    @Benchmark
+    public Object pooledDecode() throws Exception {
+        RpcSerialization serialization = SerializationFactory.getRpcSerialization((byte) SerializationTypeEnum.HESSIAN.getType());
+        ByteBuf in = PooledByteBufAllocator.DEFAULT.directBuffer(encoded.length);
+        try {
+            in.writeBytes(encoded);
+            return serialization.deserialize(in, MiniRpcRequest.class);
+        } finally {
+            in.release();
+        }
+    }
+
+    /**
+     * 改造前 SerializationFactory + HessianSerialization 的做法：每条消息新建序列化器与输出流
+     */
+    private static byte[] legacySerialize(Object object) throws Exception {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            HessianSerializerOutput hessianOutput = new HessianSerializerOutput(os);
+            hessianOutput.writeObject(object);
+            hessianOutput.flush();
+            return os.toByteArray();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SerializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
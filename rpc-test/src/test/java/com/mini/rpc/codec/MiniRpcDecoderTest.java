@@ -0,0 +1,55 @@
+package com.mini.rpc.codec;
+
+import com.mini.rpc.protocol.MiniRpcProtocol;
+import com.mini.rpc.protocol.MsgType;
+import com.mini.rpc.protocol.ProtocolConstants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MiniRpcDecoderTest {
+
+    private static ByteBuf cancelFrame(short magic, byte version) {
+        ByteBuf frame = Unpooled.buffer(ProtocolConstants.HEADER_TOTAL_LEN);
+        frame.writeShort(magic);
+        frame.writeByte(version);
+        frame.writeByte(0x10);
+        frame.writeByte(MsgType.CANCEL.getType());
+        frame.writeByte(0);
+        frame.writeLong(7L);
+        frame.writeInt(0);
+        frame.writeInt(0);
+        return frame;
+    }
+
+    @Test
+    public void testCurrentVersionDecoded() {
+        EmbeddedChannel channel = new EmbeddedChannel(new MiniRpcDecoder());
+        Assert.assertTrue(channel.writeInbound(cancelFrame(ProtocolConstants.MAGIC, ProtocolConstants.VERSION)));
+        MiniRpcProtocol<?> protocol = channel.readInbound();
+        Assert.assertEquals(7L, protocol.getHeader().getRequestId());
+        Assert.assertTrue(channel.isActive());
+    }
+
+    /**
+     * 旧版本的报文头只有 18 字节，读到版本号即关闭连接，不等待凑满新报文头
+     */
+    @Test
+    public void testOldVersionClosesConnection() {
+        EmbeddedChannel channel = new EmbeddedChannel(new MiniRpcDecoder());
+        ByteBuf frame = cancelFrame(ProtocolConstants.MAGIC, (byte) 0x1);
+        frame.writerIndex(18);
+        Assert.assertFalse(channel.writeInbound(frame));
+        Assert.assertFalse(channel.isActive());
+        Assert.assertEquals(0, frame.refCnt());
+    }
+
+    @Test
+    public void testIllegalMagicClosesConnection() {
+        EmbeddedChannel channel = new EmbeddedChannel(new MiniRpcDecoder());
+        Assert.assertFalse(channel.writeInbound(cancelFrame((short) 0x20, ProtocolConstants.VERSION)));
+        Assert.assertFalse(channel.isActive());
+    }
+}
@@ -0,0 +1,89 @@
+package com.mini.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class CompressionTest {
+
+    private static final int MAX_LENGTH = 1024 * 1024;
+
+    private static final ByteBufAllocator ALLOC = PooledByteBufAllocator.DEFAULT;
+
+    private static final RpcCompression[] COMPRESSIONS = {new Lz4Compression(), new DeflateCompression()};
+
+    private static byte[] sample() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("item-").append(i % 37).append(',');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] compress(RpcCompression compression, byte[] data) throws IOException {
+        ByteBuf compressed = compression.compress(Unpooled.wrappedBuffer(data), ALLOC);
+        try {
+            return ByteBufUtil.getBytes(compressed);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    private static void assertRejected(RpcCompression compression, byte[] frame) {
+        ByteBuf in = Unpooled.wrappedBuffer(frame);
+        try {
+            compression.decompress(in, ALLOC, MAX_LENGTH).release();
+            Assert.fail(compression.getClass().getSimpleName() + " accepted malformed data");
+        } catch (IOException expected) {
+            // 期望以 IOException 拒绝，由 decodeBody 转为 SerializationException
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] data = sample();
+        for (RpcCompression compression : COMPRESSIONS) {
+            byte[] compressed = compress(compression, data);
+            Assert.assertTrue(compressed.length < data.length);
+            ByteBuf out = compression.decompress(Unpooled.wrappedBuffer(compressed), ALLOC, MAX_LENGTH);
+            try {
+                Assert.assertArrayEquals(data, ByteBufUtil.getBytes(out));
+            } finally {
+                out.release();
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedInput() throws Exception {
+        for (RpcCompression compression : COMPRESSIONS) {
+            byte[] compressed = compress(compression, sample());
+            byte[] truncated = new byte[compressed.length / 2];
+            System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+            assertRejected(compression, truncated);
+            assertRejected(compression, new byte[]{0, 0});
+        }
+    }
+
+    /**
+     * 声明的原始长度超过上限或为负时在分配缓冲区之前拒绝；与实际解压长度不符时同样拒绝
+     */
+    @Test
+    public void testDeclaredLengthChecked() throws Exception {
+        for (RpcCompression compression : COMPRESSIONS) {
+            byte[] compressed = compress(compression, sample());
+            for (int declared : new int[]{Integer.MAX_VALUE, MAX_LENGTH + 1, -1, sample().length - 1, sample().length + 1}) {
+                byte[] frame = compressed.clone();
+                Unpooled.wrappedBuffer(frame).setInt(0, declared);
+                assertRejected(compression, frame);
+            }
+        }
+    }
+}
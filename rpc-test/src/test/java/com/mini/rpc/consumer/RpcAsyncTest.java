@@ -0,0 +1,158 @@
+package com.mini.rpc.consumer;
+
+import com.mini.rpc.common.RpcProperties;
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.compress.CompressionTypeEnum;
+import com.mini.rpc.provider.RpcProvider;
+import com.mini.rpc.provider.annotation.RpcService;
+import com.mini.rpc.provider.registry.RegistryService;
+import com.mini.rpc.serialization.SerializationTypeEnum;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机回环上的提供者，验证 RpcAsync.call 只把其中的第一次调用变为异步
+ */
+public class RpcAsyncTest {
+
+    private static final int PORT = 27950;
+
+    private static EchoFacade echoFacade;
+
+    public interface EchoFacade {
+
+        String echo(String value);
+
+        CompletableFuture<String> echoAsync(String value);
+    }
+
+    @RpcService(serviceInterface = EchoFacade.class, serviceVersion = "1.0.0")
+    public static class EchoFacadeImpl implements EchoFacade {
+
+        @Override
+        public String echo(String value) {
+            return "echo " + value;
+        }
+
+        @Override
+        public CompletableFuture<String> echoAsync(String value) {
+            return CompletableFuture.completedFuture("async " + value);
+        }
+    }
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        RpcProperties rpcProperties = new RpcProperties();
+        rpcProperties.setServicePort(PORT);
+        RegistryService registryService = new LocalRegistryService();
+        RpcProvider rpcProvider = new RpcProvider(rpcProperties, registryService);
+        rpcProvider.postProcessAfterInitialization(new EchoFacadeImpl(), "echoFacade");
+        rpcProvider.afterPropertiesSet();
+        awaitServer();
+
+        RpcConsumerFactory.configure(rpcProperties);
+        echoFacade = (EchoFacade) Proxy.newProxyInstance(EchoFacade.class.getClassLoader(), new Class<?>[]{EchoFacade.class},
+                new RpcInvokerProxy("1.0.0", 3000, (byte) SerializationTypeEnum.HESSIAN.getType(),
+                        (byte) CompressionTypeEnum.NONE.getType(), registryService));
+    }
+
+    @Test
+    public void testCallSyncMethod() throws Exception {
+        CompletableFuture<String> future = RpcAsync.call(() -> echoFacade.echo("mini"));
+        Assert.assertEquals("echo mini", future.get(3, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 本身返回 CompletableFuture 的方法在 RpcAsync.call 中调用时，返回同一个结果
+     */
+    @Test
+    public void testCallAsyncMethod() throws Exception {
+        CompletableFuture<String> future = RpcAsync.call(() -> echoFacade.echoAsync("mini").join());
+        Assert.assertEquals("async mini", future.get(3, TimeUnit.SECONDS));
+        Assert.assertEquals("echo after", echoFacade.echo("after"));
+    }
+
+    /**
+     * 第一次调用异步返回，之后的调用照常同步执行
+     */
+    @Test
+    public void testOnlyFirstCallIsAsync() throws Exception {
+        String[] second = new String[1];
+        CompletableFuture<String> future = RpcAsync.call(() -> {
+            String first = echoFacade.echo("first");
+            Assert.assertNull(first);
+            second[0] = echoFacade.echo("second");
+            return first;
+        });
+        Assert.assertEquals("echo second", second[0]);
+        Assert.assertEquals("echo first", future.get(3, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncMethodThenSyncCall() throws Exception {
+        String[] second = new String[1];
+        CompletableFuture<String> future = RpcAsync.call(() -> {
+            CompletableFuture<String> first = echoFacade.echoAsync("first");
+            second[0] = echoFacade.echo("second");
+            return first.join();
+        });
+        Assert.assertEquals("echo second", second[0]);
+        Assert.assertEquals("async first", future.get(3, TimeUnit.SECONDS));
+    }
+
+    private static void awaitServer() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            try (Socket ignored = new Socket(InetAddress.getLocalHost(), PORT)) {
+                return;
+            } catch (Exception e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("rpc server not started on port " + PORT);
+    }
+
+    /**
+     * 固定返回本机提供者，不依赖外部注册中心
+     */
+    private static class LocalRegistryService implements RegistryService {
+
+        private volatile List<ServiceMeta> instances;
+
+        @Override
+        public void register(ServiceMeta serviceMeta) {
+        }
+
+        @Override
+        public void unRegister(ServiceMeta serviceMeta) {
+        }
+
+        @Override
+        public ServiceMeta discovery(String serviceName, int invokerHashCode) throws Exception {
+            ServiceMeta serviceMeta = new ServiceMeta();
+            serviceMeta.setServiceAddr(InetAddress.getLocalHost().getHostAddress());
+            serviceMeta.setServicePort(PORT);
+            return serviceMeta;
+        }
+
+        @Override
+        public List<ServiceMeta> queryInstances(String serviceName) throws Exception {
+            if (instances == null) {
+                instances = Collections.singletonList(discovery(serviceName, 0));
+            }
+            return instances;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
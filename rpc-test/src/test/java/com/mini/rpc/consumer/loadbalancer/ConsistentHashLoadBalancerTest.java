@@ -0,0 +1,95 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import com.mini.rpc.provider.registry.loadbalancer.ConsistentHashRing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConsistentHashLoadBalancerTest {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private static final double LOAD_FACTOR = 1.25;
+
+    private static final int KEYS = 1000;
+
+    private static List<RpcConsumer> servers(int count) {
+        List<RpcConsumer> servers = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            servers.add(new StubRpcConsumer("192.168.0." + i, 100));
+        }
+        return servers;
+    }
+
+    /**
+     * 与负载均衡器使用相同的节点键独立构建的哈希环，用来确定键的归属和顺时针的下一个提供者
+     */
+    private static ConsistentHashRing<RpcConsumer> ring(List<RpcConsumer> servers) {
+        return new ConsistentHashRing<>(servers, server -> server.host + ":" + server.port, VIRTUAL_NODES);
+    }
+
+    private static void setActive(List<RpcConsumer> servers, int active) {
+        for (RpcConsumer server : servers) {
+            ((StubRpcConsumer) server).active = active;
+        }
+    }
+
+    @Test
+    public void testSameKeySticksBelowCapacity() {
+        List<RpcConsumer> servers = servers(3);
+        ConsistentHashRing<RpcConsumer> ring = ring(servers);
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(VIRTUAL_NODES, LOAD_FACTOR);
+        for (int key = 0; key < KEYS; key++) {
+            RpcConsumer owner = ring.select(key);
+            for (int i = 0; i < 5; i++) {
+                Assert.assertSame(owner, loadBalancer.select(servers, key));
+            }
+        }
+        // 所有提供者负载相同，都未超过上限
+        setActive(servers, 10);
+        for (int key = 0; key < KEYS; key++) {
+            Assert.assertSame(ring.select(key), loadBalancer.select(servers, key));
+        }
+    }
+
+    /**
+     * 其余两个提供者各有 4 个未完成调用：归属提供者为 6 个时上限 ceil(1.25 * 15 / 3) = 7，仍然命中；
+     * 为 7 个时上限 ceil(1.25 * 16 / 3) = 7，已达上限，顺时针溢出到下一个提供者
+     */
+    @Test
+    public void testSpillsClockwiseAtCapacity() {
+        List<RpcConsumer> servers = servers(3);
+        ConsistentHashRing<RpcConsumer> ring = ring(servers);
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(VIRTUAL_NODES, LOAD_FACTOR);
+        for (int key = 0; key < KEYS; key++) {
+            RpcConsumer owner = ring.select(key);
+            setActive(servers, 4);
+
+            ((StubRpcConsumer) owner).active = 6;
+            Assert.assertSame(owner, loadBalancer.select(servers, key));
+
+            ((StubRpcConsumer) owner).active = 7;
+            RpcConsumer spilled = loadBalancer.select(servers, key);
+            Assert.assertNotSame(owner, spilled);
+            Assert.assertSame(ring.select(key, server -> server != owner), spilled);
+        }
+    }
+
+    @Test
+    public void testNonPositiveLoadFactorDisablesBound() {
+        List<RpcConsumer> servers = servers(3);
+        ConsistentHashRing<RpcConsumer> ring = ring(servers);
+        for (double loadFactor : new double[]{0, -1}) {
+            ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(VIRTUAL_NODES, loadFactor);
+            for (int key = 0; key < KEYS; key++) {
+                RpcConsumer owner = ring.select(key);
+                setActive(servers, 0);
+                ((StubRpcConsumer) owner).active = 1000;
+                Assert.assertSame(owner, loadBalancer.select(servers, key));
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class P2CLoadBalancerTest {
+
+    private static final int SELECTIONS = 30_000;
+
+    /**
+     * 两个候选总是不同的提供者：负载最高者永远不会被选中，负载最低者只要被抽中即被选中，概率为 2/3
+     */
+    @Test
+    public void testPrefersLowerLoad() {
+        StubRpcConsumer light = new StubRpcConsumer("light", 100);
+        StubRpcConsumer medium = new StubRpcConsumer("medium", 100);
+        StubRpcConsumer heavy = new StubRpcConsumer("heavy", 100);
+        light.load = 1;
+        medium.load = 2;
+        heavy.load = 100;
+        List<RpcConsumer> servers = Arrays.asList(light, medium, heavy);
+        P2CLoadBalancer loadBalancer = new P2CLoadBalancer();
+        Map<RpcConsumer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < SELECTIONS; i++) {
+            counts.merge(loadBalancer.select(servers, i), 1, Integer::sum);
+        }
+        Assert.assertNull(counts.get(heavy));
+        double lightShare = (double) counts.get(light) / SELECTIONS;
+        Assert.assertEquals(2.0 / 3, lightShare, 0.03);
+    }
+
+    @Test
+    public void testSingleOrNoServer() {
+        StubRpcConsumer only = new StubRpcConsumer("only", 100);
+        P2CLoadBalancer loadBalancer = new P2CLoadBalancer();
+        Assert.assertSame(only, loadBalancer.select(Arrays.asList(only), 0));
+        Assert.assertNull(loadBalancer.select(new ArrayList<>(), 0));
+    }
+}
@@ -0,0 +1,48 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.consumer.RpcConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RoundRobinLoadBalancerTest {
+
+    /**
+     * 权重 5:1:1 时每 7 次选择的顺序为 a a b a c a a，权重高的提供者不会被连续集中选中
+     */
+    @Test
+    public void testSmoothWeightedOrder() {
+        StubRpcConsumer a = new StubRpcConsumer("a", 5);
+        StubRpcConsumer b = new StubRpcConsumer("b", 1);
+        StubRpcConsumer c = new StubRpcConsumer("c", 1);
+        List<RpcConsumer> servers = Arrays.asList(a, b, c);
+        RoundRobinLoadBalancer loadBalancer = new RoundRobinLoadBalancer();
+        List<RpcConsumer> expected = Arrays.asList(a, a, b, a, c, a, a);
+        for (int round = 0; round < 100; round++) {
+            List<RpcConsumer> selected = new ArrayList<>();
+            for (int i = 0; i < expected.size(); i++) {
+                selected.add(loadBalancer.select(servers, 0));
+            }
+            Assert.assertEquals(expected, selected);
+        }
+    }
+
+    @Test
+    public void testRestartsWhenServersChange() {
+        StubRpcConsumer a = new StubRpcConsumer("a", 2);
+        StubRpcConsumer b = new StubRpcConsumer("b", 1);
+        RoundRobinLoadBalancer loadBalancer = new RoundRobinLoadBalancer();
+        List<RpcConsumer> servers = Arrays.asList(a, b);
+        Assert.assertSame(a, loadBalancer.select(servers, 0));
+        Assert.assertSame(b, loadBalancer.select(servers, 0));
+
+        StubRpcConsumer c = new StubRpcConsumer("c", 4);
+        List<RpcConsumer> changed = Arrays.asList(a, b, c);
+        Assert.assertSame(c, loadBalancer.select(changed, 0));
+        Assert.assertNull(loadBalancer.select(new ArrayList<>(), 0));
+        Assert.assertSame(a, loadBalancer.select(Arrays.asList(a), 0));
+    }
+}
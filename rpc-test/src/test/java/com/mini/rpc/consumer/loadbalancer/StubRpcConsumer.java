@@ -0,0 +1,41 @@
+package com.mini.rpc.consumer.loadbalancer;
+
+import com.mini.rpc.common.RpcProperties;
+import com.mini.rpc.common.ServiceMeta;
+import com.mini.rpc.consumer.RpcConsumer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+
+/**
+ * 不建立连接的消费者，未完成调用数和负载由测试直接指定
+ */
+class StubRpcConsumer extends RpcConsumer {
+
+    /**
+     * 只用于构造 Bootstrap，不建立连接时不会启动线程
+     */
+    private static final EventLoopGroup GROUP = new DefaultEventLoopGroup(1);
+
+    int active;
+
+    double load;
+
+    StubRpcConsumer(String host, int weight) {
+        super(new ServiceMeta().setServiceAddr(host).setServicePort(8080).setWeight(weight), new RpcProperties(), GROUP);
+    }
+
+    @Override
+    public int getActive() {
+        return active;
+    }
+
+    @Override
+    public double getLoad() {
+        return load;
+    }
+
+    @Override
+    public String toString() {
+        return host;
+    }
+}
@@ -0,0 +1,77 @@
+package com.mini.rpc.handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class GradientConcurrencyLimiterTest {
+
+    /**
+     * 占满当前上限后全部以相同耗时归还，模拟执行器满载运行一轮
+     */
+    private static void saturate(GradientConcurrencyLimiter limiter, long rttMillis, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(rttMillis), false);
+            }
+        }
+        Assert.assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    public void testStartsAtInitialLimit() {
+        Assert.assertEquals(200, new GradientConcurrencyLimiter(200, 20, 1000).getLimit());
+        Assert.assertEquals(20, new GradientConcurrencyLimiter(1, 20, 1000).getLimit());
+        Assert.assertEquals(1000, new GradientConcurrencyLimiter(5000, 20, 1000).getLimit());
+    }
+
+    @Test
+    public void testRejectsOverLimit() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 20, 1000);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+        }
+        Assert.assertFalse(limiter.tryAcquire());
+        limiter.release(0, true);
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testGrowsWhileLatencyFlat() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 10, 1000);
+        saturate(limiter, 10, 20);
+        Assert.assertTrue("limit " + limiter.getLimit(), limiter.getLimit() > 40);
+    }
+
+    @Test
+    public void testShrinksAndRecovers() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(200, 20, 1000);
+        saturate(limiter, 10, 5);
+        int steady = limiter.getLimit();
+        Assert.assertTrue("limit " + steady, steady >= 200);
+
+        // 请求开始排队，耗时升到 10 倍，上限收缩
+        saturate(limiter, 100, 5);
+        int shrunk = limiter.getLimit();
+        Assert.assertTrue("limit " + shrunk, shrunk < steady / 2);
+
+        // 耗时恢复后上限重新增长
+        saturate(limiter, 10, 30);
+        Assert.assertTrue("limit " + limiter.getLimit(), limiter.getLimit() > steady);
+    }
+
+    @Test
+    public void testDroppedRequestsAreNotSampled() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(50, 20, 1000);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire();
+            limiter.release(TimeUnit.SECONDS.toNanos(10), true);
+        }
+        Assert.assertEquals(50, limiter.getLimit());
+    }
+}
@@ -0,0 +1,39 @@
+package com.mini.rpc.protocol;
+
+import com.mini.rpc.common.MiniRpcResponse;
+import com.mini.rpc.serialization.SerializationTypeEnum;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MiniRpcProtocolTest {
+
+    /**
+     * 解码失败后 payload 已释放，再次解码仍抛出原来的异常，而不是返回 null
+     */
+    @Test
+    public void testDecodeFailureIsSticky() {
+        MsgHeader header = new MsgHeader();
+        header.setSerialization((byte) SerializationTypeEnum.KRYO.getType());
+        ByteBuf payload = Unpooled.wrappedBuffer(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 0x01});
+        MiniRpcProtocol<MiniRpcResponse> protocol = new MiniRpcProtocol<>();
+        protocol.setHeader(header);
+        protocol.setPayload(payload);
+
+        RuntimeException first = null;
+        try {
+            protocol.decodeBody(MiniRpcResponse.class);
+        } catch (RuntimeException e) {
+            first = e;
+        }
+        Assert.assertNotNull(first);
+        Assert.assertEquals(0, payload.refCnt());
+        try {
+            protocol.decodeBody(MiniRpcResponse.class);
+            Assert.fail("decode failure should be rethrown");
+        } catch (RuntimeException e) {
+            Assert.assertSame(first, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.mini.rpc.serialization;
+
+import com.mini.rpc.common.MiniRpcRequest;
+import com.mini.rpc.common.MiniRpcResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class KryoSerializationTest {
+
+    public static class Order {
+        private long id;
+        private List<Item> items;
+    }
+
+    public static class Item {
+        private String name;
+    }
+
+    public static class Unregistered {
+        private String name;
+    }
+
+    public interface OrderFacade {
+        Order find(long id, List<String> tags);
+    }
+
+    private final KryoSerialization serialization = new KryoSerialization();
+
+    @Test
+    public void testRegisteredServiceTypesRoundTrip() {
+        KryoSerialization.registerServiceInterface(OrderFacade.class);
+        Item item = new Item();
+        item.name = "book";
+        Order order = new Order();
+        order.id = 7;
+        order.items = Arrays.asList(item);
+
+        MiniRpcRequest request = new MiniRpcRequest();
+        request.setClassName(OrderFacade.class.getName());
+        request.setMethodName("find");
+        request.setParameterTypes(new Class<?>[]{long.class, List.class});
+        request.setParams(new Object[]{7L, Arrays.asList("a", "b")});
+        MiniRpcRequest decodedRequest = serialization.deserialize(serialization.serialize(request), MiniRpcRequest.class);
+        Assert.assertArrayEquals(request.getParameterTypes(), decodedRequest.getParameterTypes());
+        Assert.assertArrayEquals(request.getParams(), decodedRequest.getParams());
+
+        MiniRpcResponse response = new MiniRpcResponse();
+        response.setData(order);
+        Order decoded = (Order) serialization.deserialize(serialization.serialize(response), MiniRpcResponse.class).getData();
+        Assert.assertEquals(7, decoded.id);
+        Assert.assertEquals("book", decoded.items.get(0).name);
+    }
+
+    /**
+     * 未注册的类既不能写出，也不能由对端在数据中指定
+     */
+    @Test(expected = SerializationException.class)
+    public void testUnregisteredClassRejected() {
+        MiniRpcResponse response = new MiniRpcResponse();
+        response.setData(new Unregistered());
+        serialization.serialize(response);
+    }
+}